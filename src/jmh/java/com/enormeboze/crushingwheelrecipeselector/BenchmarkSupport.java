@@ -0,0 +1,43 @@
+package com.enormeboze.crushingwheelrecipeselector;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.Bootstrap;
+
+/**
+ * Shared setup for the JMH benchmarks.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Bootstrap vanilla registries so Items and item IDs resolve outside the game
+     */
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    /**
+     * First wheel of the i-th crusher in a flat grid of east-west wheel pairs
+     */
+    static BlockPos firstWheel(int index) {
+        return new BlockPos((index % 256) * 4, 64, (index / 256) * 4);
+    }
+
+    /**
+     * Second wheel of the i-th crusher - 2 blocks east of the first
+     */
+    static BlockPos secondWheel(int index) {
+        return firstWheel(index).east(2);
+    }
+
+    /**
+     * Controller between the wheels of the i-th crusher
+     */
+    static BlockPos controller(int index) {
+        return firstWheel(index).east();
+    }
+}
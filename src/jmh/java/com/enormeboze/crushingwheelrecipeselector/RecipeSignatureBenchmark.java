@@ -0,0 +1,67 @@
+package com.enormeboze.crushingwheelrecipeselector;
+
+import com.simibubi.create.content.processing.recipe.ProcessingOutput;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for RecipeHandler.getOutputSignature - run once per crushing recipe
+ * on every conflict scan.
+ *
+ * Measures the signature of the outputs directly: building a CrushingRecipe needs
+ * Create's recipe types and serializers, which are only registered during mod loading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeSignatureBenchmark {
+
+    // Cobblestone -> gravel
+    private ItemStack singleResult;
+    private List<ProcessingOutput> singleRolls;
+
+    // Iron ore -> raw iron plus rolled extras
+    private ItemStack rolledResult;
+    private List<ProcessingOutput> rolledRolls;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+
+        singleResult = new ItemStack(Items.GRAVEL);
+        singleRolls = List.of(new ProcessingOutput(new ItemStack(Items.GRAVEL), 1f));
+
+        rolledResult = new ItemStack(Items.RAW_IRON);
+        rolledRolls = List.of(
+                new ProcessingOutput(new ItemStack(Items.RAW_IRON), 1f),
+                new ProcessingOutput(new ItemStack(Items.RAW_IRON), 0.75f),
+                new ProcessingOutput(new ItemStack(Items.IRON_NUGGET, 3), 0.75f),
+                new ProcessingOutput(new ItemStack(Items.COBBLESTONE), 0.125f));
+    }
+
+    @Benchmark
+    public String singleOutput() {
+        return RecipeHandler.getOutputSignature(singleResult, singleRolls);
+    }
+
+    @Benchmark
+    public String rolledOutputs() {
+        return RecipeHandler.getOutputSignature(rolledResult, rolledRolls);
+    }
+}
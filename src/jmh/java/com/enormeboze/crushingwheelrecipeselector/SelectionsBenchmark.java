@@ -0,0 +1,140 @@
+package com.enormeboze.crushingwheelrecipeselector;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Items;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for CrushingWheelSelections at different world sizes.
+ *
+ * Each group is one linked crusher (two wheels) with a single preference.
+ * Link/unlink benchmarks restore the original state within the same operation
+ * so the data size stays fixed across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectionsBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int groups;
+
+    private CrushingWheelSelections selections;
+    private CrushingWheelSelections.ReadView view;
+    private int[] groupIds;
+    private CompoundTag savedTag;
+
+    private static final ResourceLocation PREFERRED_RECIPE =
+            ResourceLocation.fromNamespaceAndPath("create", "crushing/andesite");
+
+    // Rotating cursor so lookups don't always hit the same entry
+    private int cursor = 0;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+
+        selections = new CrushingWheelSelections();
+        groupIds = new int[groups];
+        for (int i = 0; i < groups; i++) {
+            int groupId = selections.allocateGroup();
+            groupIds[i] = groupId;
+            selections.linkWheel(BenchmarkSupport.firstWheel(i), groupId);
+            selections.linkWheel(BenchmarkSupport.secondWheel(i), groupId);
+            selections.setPreferredRecipe(BenchmarkSupport.firstWheel(i), Items.ANDESITE, PREFERRED_RECIPE);
+        }
+
+        savedTag = selections.save(new CompoundTag(), null);
+
+        // The crusher tick only reads the published view
+        selections.publishReadView();
+        view = selections.getReadView();
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = index + 1 == groups ? 0 : index + 1;
+        return index;
+    }
+
+    /**
+     * Move a linked wheel to a fresh group and back (two real links - the fresh group
+     * is freed again when the wheel leaves it, so the size stays constant)
+     */
+    @Benchmark
+    public void linkWheel() {
+        int index = next();
+        BlockPos second = BenchmarkSupport.secondWheel(index);
+        selections.linkWheel(second, selections.allocateGroup());
+        selections.linkWheel(second, groupIds[index]);
+    }
+
+    /**
+     * Unlink a crusher and link it back (one unlink + two links)
+     */
+    @Benchmark
+    public void unlinkWheel() {
+        int index = next();
+        BlockPos first = BenchmarkSupport.firstWheel(index);
+        selections.unlinkWheel(first);
+        selections.linkWheel(first, groupIds[index]);
+        selections.linkWheel(BenchmarkSupport.secondWheel(index), groupIds[index]);
+    }
+
+    @Benchmark
+    public ResourceLocation getPreferredRecipe() {
+        return selections.getPreferredRecipe(BenchmarkSupport.firstWheel(next()), Items.ANDESITE);
+    }
+
+    @Benchmark
+    public boolean isControllerActiveHit() {
+        return view.isControllerActive(BenchmarkSupport.controller(next()).asLong());
+    }
+
+    @Benchmark
+    public boolean isControllerActiveMiss() {
+        return view.isControllerActive(BenchmarkSupport.firstWheel(next()).above().asLong());
+    }
+
+    @Benchmark
+    public PreferenceTable getControllerPreferences() {
+        return view.getControllerPreferences(BenchmarkSupport.controller(next()).asLong());
+    }
+
+    @Benchmark
+    public void rebuildControllerCache() {
+        selections.rebuildControllerCache();
+    }
+
+    @Benchmark
+    public CompoundTag save() {
+        return selections.save(new CompoundTag(), null);
+    }
+
+    @Benchmark
+    public CrushingWheelSelections load() {
+        return CrushingWheelSelections.load(savedTag, null);
+    }
+
+    @Benchmark
+    public CrushingWheelSelections saveLoadRoundTrip() {
+        return CrushingWheelSelections.load(selections.save(new CompoundTag(), null), null);
+    }
+}
@@ -21,7 +21,11 @@ public class CrushingWheelRecipeSelector {
         // Other handlers use @EventBusSubscriber on GAME bus (default) so they auto-register:
         // - WrenchHandler (wrench interaction)
         // - RecipeHandler (recipe scanning)
+        // - CrushingRecipeIndex (server-side recipe and conflict index)
         // - BreakHandler (wheel break cleanup)
+        // - PlaceHandler (auto-link on wheel placement)
+        // - LevelDataHandler (per-level selections handle)
+        // - ModCommands (/crushingselector admin commands)
 
         LOGGER.info("Crushing Wheel Recipe Selector initialized!");
     }
@@ -1,33 +1,77 @@
 package com.enormeboze.crushingwheelrecipeselector;
 
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.HolderLookup;
+import net.minecraft.core.SectionPos;
+import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntArrayTag;
 import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.StringTag;
 import net.minecraft.nbt.Tag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.dimension.DimensionType;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
 import net.minecraft.world.level.saveddata.SavedData;
+import net.minecraft.world.level.storage.LevelResource;
 
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
 
 /**
  * World-saved data for crushing wheel links and recipe preferences.
  *
- * Wheels are LINKED in pairs using a shared group UUID.
- * Linked wheels share recipe preferences.
+ * Wheels are LINKED in pairs using a shared group ID. Group IDs are dense ints handed
+ * out by allocateGroup() and recycled when a group is dissolved, so per-group state
+ * lives in plain arrays indexed by group ID.
+ * Linked wheels share recipe preferences. A group can instead subscribe to a named
+ * profile, so many wheel pairs share (and edit) one set of preferences.
  *
  * PERFORMANCE OPTIMIZATION:
- * We cache controller positions (the block between linked wheel pairs) so that
- * the mixin can do a single O(1) HashSet lookup to skip processing for unlinked wheels.
+ * We cache controller positions (the block between linked wheel pairs) mapped to their
+ * group, so that the mixin can do a single O(1) lookup to skip processing for unlinked
+ * wheels and to resolve the active preference table without probing neighbours.
+ *
+ * The mixin reads an immutable ReadView of controller -> preference table instead of
+ * these maps, so crusher ticks may run off the server thread; see ReadView.
  *
  * Controller positions are calculated using axis-aware logic - the controller is
  * always exactly at the midpoint between the two wheels along their shared axis.
@@ -36,297 +80,1688 @@ public class CrushingWheelSelections extends SavedData {
 
     private static final String DATA_NAME = CrushingWheelRecipeSelector.MOD_ID + "_selections";
 
-    // Map: BlockPos -> Group UUID (wheels in same group are linked)
-    private final Map<BlockPos, UUID> wheelGroups = new HashMap<>();
+    // Map: Packed wheel BlockPos (BlockPos.asLong) -> Group ID (wheels in same group are linked)
+    // Open-addressing primitive map - no boxed keys or values, -1 for unlinked wheels
+    private final Long2IntOpenHashMap wheelGroups = newLong2IntMap();
+
+    // ---- Group slots, indexed by group ID (grown together, see ensureGroupCapacity) ----
+
+    // Group ID -> PreferenceTable (InputItem -> PreferredRecipeId), or null
+    // Tables are immutable and interned, so groups with identical selections share one
+    // instance; edits are copy-on-write. Keyed on Item identity so the hot path never
+    // builds an item ID string - string IDs are only used at the NBT and packet boundaries.
+    private PreferenceTable[] groupPreferences = new PreferenceTable[INITIAL_GROUP_CAPACITY];
+
+    // Group ID -> preference table still in its saved encoding, or null
+    // Filled on load instead of groupPreferences; a group's table is only decoded (item
+    // lookups, ResourceLocation parsing) when a controller of that group is first queried
+    // or its GUI is opened. Undecoded tables are written back as-is on save.
+    private EncodedTable[] encodedPreferences = new EncodedTable[INITIAL_GROUP_CAPACITY];
+
+    // Group ID -> subscribed profile name, or null
+    // A subscribed group uses the profile's table instead of its own, and edits made
+    // through any subscribed group (e.g. the GUI) update the profile for all of them
+    private String[] groupProfiles = new String[INITIAL_GROUP_CAPACITY];
+
+    // Reverse index: Group ID -> packed positions of the wheels in that group, or null
+    // Lets unlink find a wheel's pair in O(1) and link/unlink update the controller
+    // cache for just the affected group. Kept consistent by link, unlink and load.
+    // This is NOT persisted - it's rebuilt from wheelGroups on load
+    private LongList[] groupWheels = new LongList[INITIAL_GROUP_CAPACITY];
+
+    // Group ID -> the group's read view cell, or null until a published view needs it.
+    // Each group allocation gets a fresh cell (freeGroup drops it), so a view published
+    // before an ID is reused never sees the new group's preferences.
+    private TableCell[] groupCells = new TableCell[INITIAL_GROUP_CAPACITY];
+
+    // Group IDs in use are all below groupCount; freed IDs below it are set in freeGroupIds.
+    // Allocation reuses the lowest free ID first, so IDs stay dense.
+    private int groupCount = 0;
+    private final BitSet freeGroupIds = new BitSet();
+
+    private static final int INITIAL_GROUP_CAPACITY = 16;
+
+    // Named profiles: Profile name -> PreferenceTable
+    private final Map<String, PreferenceTable> profiles = new TreeMap<>();
+
+    // Profile name -> read view cell that the cells of subscribed groups point to
+    private final Map<String, TableCell> profileCells = new HashMap<>();
+
+    // Spatial index: ChunkPos.toLong of a wheel's chunk -> groups with at least one wheel in it
+    // Area queries and chunk-level lookups cost proportional to the region, not the world.
+    // Kept consistent by link, unlink and load. This is NOT persisted
+    private final Long2ObjectOpenHashMap<IntSet> chunkGroups = new Long2ObjectOpenHashMap<>();
+
+    // PERFORMANCE CACHE: Controller position -> Group ID of the linked wheel pair around it
+    // This allows the mixin to skip unlinked wheels and find the group's preferences in one lookup
+    // This is NOT persisted - it's rebuilt from wheelGroups on load and updated incrementally after
+    // Keyed on the packed controller position so the mixin can probe it without boxing
+    private final Long2IntOpenHashMap controllerGroups = newLong2IntMap();
+
+    // Append-only change journal (null until attached in get(), and in benchmarks)
+    // Link/unlink/select/clear are appended here instead of dirtying the whole snapshot
+    @Nullable
+    private SelectionsJournal journal;
+
+    // Epoch of the last snapshot - a journal only extends the snapshot with the same epoch
+    private long journalEpoch = 0;
+
+    // Journaled operations before the snapshot is rewritten (compaction)
+    private static final int JOURNAL_COMPACT_THRESHOLD = 4096;
+
+    // Read view for the mixin - its controller map is replaced (never mutated) when links
+    // change; preference edits only swap the table held by a group or profile cell.
+    // Per-controller memos in the mixin are only valid for the view and table they were built from.
+    private volatile ReadView readView = ReadView.EMPTY;
+
+    // Set by every change to which controllers are active (link/unlink, load). Server thread only.
+    private boolean readViewStale = true;
+
+    public CrushingWheelSelections() {
+    }
+
+    private static Long2IntOpenHashMap newLong2IntMap() {
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap();
+        map.defaultReturnValue(-1);
+        return map;
+    }
+
+    // ==================== GROUP IDS ====================
+
+    /**
+     * Allocate an ID for a new group - the lowest free ID, or a new one
+     */
+    public int allocateGroup() {
+        int groupId = freeGroupIds.nextSetBit(0);
+        if (groupId < 0) {
+            groupId = groupCount++;
+            ensureGroupCapacity(groupCount);
+        } else {
+            freeGroupIds.clear(groupId);
+        }
+        return groupId;
+    }
+
+    /**
+     * Mark a group ID as in use (journal replay links to IDs that were allocated after the snapshot)
+     */
+    private void claimGroup(int groupId) {
+        if (groupId >= groupCount) {
+            freeGroupIds.set(groupCount, groupId);
+            groupCount = groupId + 1;
+            ensureGroupCapacity(groupCount);
+        }
+        freeGroupIds.clear(groupId);
+    }
+
+    /**
+     * Clear a dissolved group's slots and make its ID available again
+     */
+    private void freeGroup(int groupId) {
+        groupWheels[groupId] = null;
+        groupPreferences[groupId] = null;
+        encodedPreferences[groupId] = null;
+        groupProfiles[groupId] = null;
+        groupCells[groupId] = null;
+        freeGroupIds.set(groupId);
+    }
+
+    private void ensureGroupCapacity(int capacity) {
+        if (capacity > groupWheels.length) {
+            int newLength = Math.max(capacity, groupWheels.length * 2);
+            groupPreferences = Arrays.copyOf(groupPreferences, newLength);
+            encodedPreferences = Arrays.copyOf(encodedPreferences, newLength);
+            groupProfiles = Arrays.copyOf(groupProfiles, newLength);
+            groupWheels = Arrays.copyOf(groupWheels, newLength);
+            groupCells = Arrays.copyOf(groupCells, newLength);
+        }
+    }
+
+    // ==================== READ VIEW ====================
+
+    /**
+     * Get the current read view - safe to call from any thread.
+     *
+     * Package-private so the JMH benchmarks can read it without a level.
+     */
+    ReadView getReadView() {
+        return readView;
+    }
+
+    /**
+     * Get the current read view for a level - safe to call from any thread.
+     * Only reads the handle cached on the level (populated on level load), so it never
+     * touches the level's data storage.
+     */
+    public static ReadView getReadView(ServerLevel serverLevel) {
+        CrushingWheelSelections selections = ((SelectionsHolder) serverLevel).crushingwheelrecipeselector$getSelections();
+        return selections != null ? selections.readView : ReadView.EMPTY;
+    }
+
+    /**
+     * Mark the read view's controller map stale - it is rebuilt at the end of the level tick
+     */
+    private void invalidateReadView() {
+        readViewStale = true;
+    }
+
+    /**
+     * Publish a new read view if any link changed since the last one.
+     * Called on the server thread at the end of each level tick, so a burst of link
+     * changes (bulk link, area operations) costs one rebuild. Preference edits don't
+     * rebuild anything - see refreshGroupCell and refreshProfileCell.
+     */
+    public void publishReadView() {
+        if (!readViewStale) {
+            return;
+        }
+        readViewStale = false;
+
+        Long2ObjectOpenHashMap<TableCell> controllerCells = new Long2ObjectOpenHashMap<>(controllerGroups.size());
+        for (Long2IntMap.Entry entry : controllerGroups.long2IntEntrySet()) {
+            controllerCells.put(entry.getLongKey(), getGroupCell(entry.getIntValue()));
+        }
+        readView = new ReadView(controllerCells);
+    }
+
+    private TableCell getGroupCell(int groupId) {
+        TableCell cell = groupCells[groupId];
+        if (cell == null) {
+            cell = new TableCell(getReadViewTable(groupId));
+            groupCells[groupId] = cell;
+        }
+        return cell;
+    }
+
+    /**
+     * Swap a group's cell to its current effective preferences (after select/clear or a
+     * subscription change). O(1) - the published controller map is left untouched.
+     */
+    private void refreshGroupCell(int groupId) {
+        TableCell cell = groupCells[groupId];
+        if (cell != null) {
+            cell.value = getReadViewTable(groupId);
+        }
+    }
+
+    private TableCell getProfileCell(String name) {
+        return profileCells.computeIfAbsent(name, n -> new TableCell(profiles.getOrDefault(n, PreferenceTable.EMPTY)));
+    }
+
+    /**
+     * Swap a profile's cell to its current table - every subscribed group sees it at once
+     */
+    private void refreshProfileCell(String name) {
+        TableCell cell = profileCells.get(name);
+        if (cell != null) {
+            cell.value = profiles.getOrDefault(name, PreferenceTable.EMPTY);
+        }
+    }
+
+    /**
+     * A group's effective preferences for its read view cell - its profile's cell if
+     * subscribed, else a PreferenceTable or an EncodedTable left for the first reader to decode
+     */
+    private Object getReadViewTable(int groupId) {
+        String profile = groupProfiles[groupId];
+        if (profile != null) {
+            return getProfileCell(profile);
+        }
+        Object table = groupPreferences[groupId];
+        if (table == null) {
+            table = encodedPreferences[groupId];
+        }
+        return table != null ? table : PreferenceTable.EMPTY;
+    }
+
+    /**
+     * PERFORMANCE OPTIMIZATION: Lock-free read path
+     *
+     * Immutable map of controller position -> group cell, published through a volatile
+     * field. The maps above are only touched on the server thread; crusher ticks (which
+     * performance mods may run on worker threads) only ever read a view, so they need no
+     * locks and can never observe a map mid-update. The map is only rebuilt when links
+     * change - a select or clear swaps one cell's table.
+     */
+    public static final class ReadView {
+
+        static final ReadView EMPTY = new ReadView(new Long2ObjectOpenHashMap<>());
+
+        private final Long2ObjectOpenHashMap<TableCell> controllerCells;
+
+        private ReadView(Long2ObjectOpenHashMap<TableCell> controllerCells) {
+            this.controllerCells = controllerCells;
+        }
+
+        /**
+         * Returns true if this controller position is between linked crushing wheels
+         */
+        public boolean isControllerActive(long packedControllerPos) {
+            return controllerCells.containsKey(packedControllerPos);
+        }
+
+        /**
+         * Get the cell of the wheel pair around this controller, or null if the controller
+         * is not between linked wheels
+         */
+        @Nullable
+        public TableCell getControllerCell(long packedControllerPos) {
+            return controllerCells.get(packedControllerPos);
+        }
+
+        /**
+         * Get the preference table for the wheel pair around this controller, or null if
+         * the controller is not between linked wheels
+         */
+        @Nullable
+        public PreferenceTable getControllerPreferences(long packedControllerPos) {
+            TableCell cell = controllerCells.get(packedControllerPos);
+            return cell != null ? cell.get() : null;
+        }
+    }
+
+    /**
+     * A group's (or profile's) effective preferences as seen by the read view.
+     * Written on the server thread, read from any thread.
+     */
+    public static final class TableCell {
+
+        // PreferenceTable, EncodedTable (not yet decoded), or the cell of a subscribed profile
+        private volatile Object value;
+
+        private TableCell(Object value) {
+            this.value = value;
+        }
+
+        /**
+         * The table currently in effect, following a profile subscription - compare by
+         * identity to tell whether the preferences changed
+         */
+        public Object current() {
+            Object table = value;
+            return table instanceof TableCell profile ? profile.value : table;
+        }
+
+        public PreferenceTable get() {
+            Object table = current();
+            if (table instanceof EncodedTable encoded) {
+                return encoded.decode();
+            }
+            return (PreferenceTable) table;
+        }
+    }
+
+    // ==================== CONTROLLER CACHE ====================
+
+    /**
+     * Fast check for the mixin - returns true if this controller position
+     * is between linked crushing wheels.
+     *
+     * This is O(1) and allows unlinked wheels to skip all mixin processing.
+     */
+    public boolean isControllerActive(BlockPos controllerPos) {
+        return controllerGroups.containsKey(controllerPos.asLong());
+    }
+
+    /**
+     * Rebuild the group membership index, chunk index and controller position cache from
+     * wheel groups. Only called after loading from NBT - link/unlink update them incrementally.
+     *
+     * Package-private so the JMH benchmarks can measure it directly.
+     */
+    void rebuildControllerCache() {
+        Arrays.fill(groupWheels, null);
+        chunkGroups.clear();
+        controllerGroups.clear();
+
+        // Group wheels by their group ID and by chunk
+        for (Long2IntMap.Entry entry : wheelGroups.long2IntEntrySet()) {
+            int groupId = entry.getIntValue();
+            if (groupWheels[groupId] == null) {
+                groupWheels[groupId] = new LongArrayList(2);
+            }
+            groupWheels[groupId].add(entry.getLongKey());
+            indexWheel(entry.getLongKey(), groupId);
+        }
+
+        // For each group with exactly 2 wheels, calculate the controller position
+        for (int groupId = 0; groupId < groupCount; groupId++) {
+            if (groupWheels[groupId] != null) {
+                addController(groupId, groupWheels[groupId]);
+            }
+        }
+
+        CrushingWheelRecipeSelector.LOGGER.debug("Rebuilt controller cache: {} active controller(s)",
+                controllerGroups.size());
+    }
+
+    /**
+     * Register the controller for a group if it is a complete pair (exactly 2 wheels).
+     *
+     * Uses CrushingWheelPairHelper to calculate exact controller positions
+     * based on the midpoint between paired wheels.
+     */
+    private void addController(int groupId, LongList wheels) {
+        if (wheels.size() == 2) {
+            controllerGroups.put(getControllerKey(wheels), groupId);
+        }
+    }
+
+    /**
+     * Remove the controller for a group if it is currently a complete pair
+     */
+    private void removeController(int groupId, LongList wheels) {
+        if (wheels.size() == 2) {
+            controllerGroups.remove(getControllerKey(wheels), groupId);
+        }
+    }
+
+    private static long getControllerKey(LongList wheels) {
+        BlockPos wheel1 = BlockPos.of(wheels.getLong(0));
+        BlockPos wheel2 = BlockPos.of(wheels.getLong(1));
+        return CrushingWheelPairHelper.getControllerPosition(wheel1, wheel2).asLong();
+    }
+
+    private static long getChunkKey(long packedPos) {
+        return ChunkPos.asLong(SectionPos.blockToSectionCoord(BlockPos.getX(packedPos)),
+                SectionPos.blockToSectionCoord(BlockPos.getZ(packedPos)));
+    }
+
+    /**
+     * Record a wheel's group in the chunk index
+     */
+    private void indexWheel(long packedPos, int groupId) {
+        chunkGroups.computeIfAbsent(getChunkKey(packedPos), k -> new IntOpenHashSet(2)).add(groupId);
+    }
+
+    /**
+     * Drop a wheel's group from the chunk index, unless another wheel of the
+     * same group is in the same chunk
+     */
+    private void unindexWheel(long packedPos, int groupId, @Nullable LongList groupMembers) {
+        long chunkKey = getChunkKey(packedPos);
+        if (groupMembers != null) {
+            for (int i = 0; i < groupMembers.size(); i++) {
+                long other = groupMembers.getLong(i);
+                if (other != packedPos && getChunkKey(other) == chunkKey) {
+                    return;
+                }
+            }
+        }
+
+        IntSet groups = chunkGroups.get(chunkKey);
+        if (groups != null) {
+            groups.remove(groupId);
+            if (groups.isEmpty()) {
+                chunkGroups.remove(chunkKey);
+            }
+        }
+    }
+
+    /**
+     * Remove a wheel from its group's membership list, dropping the group's controller
+     * if the group stops being a complete pair, and freeing the group if it is left empty
+     */
+    private void detachFromGroup(long packedPos, int groupId) {
+        LongList wheels = groupWheels[groupId];
+        unindexWheel(packedPos, groupId, wheels);
+        if (wheels == null) {
+            return;
+        }
+
+        removeController(groupId, wheels);
+        wheels.rem(packedPos);
+        if (wheels.isEmpty()) {
+            freeGroup(groupId);
+        } else {
+            addController(groupId, wheels);
+        }
+    }
+
+    // ==================== LINKING ====================
+
+    /**
+     * Link a wheel to a group (see allocateGroup)
+     */
+    public void linkWheel(BlockPos pos, int groupId) {
+        long packedPos = pos.asLong();
+        putWheel(packedPos, groupId);
+        invalidateReadView();
+        markJournaled(journal != null && journal.appendLink(packedPos, groupId));
+
+        CrushingWheelRecipeSelector.LOGGER.debug("Linked wheel at {} to group {}", pos, groupId);
+    }
+
+    /**
+     * Link many wheel pairs at once - each valid pair whose wheels are both unlinked gets
+     * a new group. Pairs are validated with CrushingWheelPairHelper.
+     *
+     * PERFORMANCE OPTIMIZATION:
+     * The indexes are updated in place, the read view is invalidated once and the
+     * SavedData is marked dirty once for the whole batch, instead of journaling every link.
+     *
+     * @return number of pairs linked
+     */
+    public int linkPairs(Level level, Collection<WheelPair> pairs) {
+        int linked = 0;
+        for (WheelPair pair : pairs) {
+            long first = pair.first().asLong();
+            long second = pair.second().asLong();
+            // Never steal a wheel from an existing pair (or one linked earlier in this batch)
+            if (first == second || wheelGroups.containsKey(first) || wheelGroups.containsKey(second)
+                    || !CrushingWheelPairHelper.isValidPair(level, pair.first(), pair.second())) {
+                continue;
+            }
+
+            int groupId = allocateGroup();
+            putWheel(first, groupId);
+            putWheel(second, groupId);
+            linked++;
+        }
+
+        if (linked > 0) {
+            invalidateReadView();
+            markDirtyFull();
+            CrushingWheelRecipeSelector.LOGGER.debug("Bulk-linked {} wheel pair(s)", linked);
+        }
+        return linked;
+    }
+
+    /**
+     * Two wheel positions to link as one group
+     */
+    public record WheelPair(BlockPos first, BlockPos second) {
+    }
+
+    /**
+     * Put a wheel in a group and update the group, chunk and controller indexes
+     */
+    private void putWheel(long packedPos, int groupId) {
+        int previousGroup = wheelGroups.put(packedPos, groupId);
+
+        // Update the controller cache for just the affected group(s)
+        if (groupId != previousGroup) {
+            if (previousGroup >= 0) {
+                detachFromGroup(packedPos, previousGroup);
+            }
+
+            claimGroup(groupId);
+            LongList wheels = groupWheels[groupId];
+            if (wheels == null) {
+                wheels = new LongArrayList(2);
+                groupWheels[groupId] = wheels;
+            }
+            removeController(groupId, wheels);
+            wheels.add(packedPos);
+            addController(groupId, wheels);
+            indexWheel(packedPos, groupId);
+        }
+    }
+
+    /**
+     * Unlink a wheel and its pair (called when wheel is broken)
+     * Both wheels in a pair must be unlinked when one is broken
+     */
+    public void unlinkWheel(BlockPos pos) {
+        int groupId = wheelGroups.get(pos.asLong());
+        if (groupId >= 0) {
+            // Find ALL wheels in this group (the pair) through the reverse index
+            LongList wheelsInGroup = groupWheels[groupId];
+            if (wheelsInGroup == null) {
+                wheelsInGroup = LongList.of(pos.asLong());
+            }
+
+            // Drop the group's controller from the cache
+            removeController(groupId, wheelsInGroup);
+
+            // Remove all wheels from this group
+            for (int i = 0; i < wheelsInGroup.size(); i++) {
+                long wheelPos = wheelsInGroup.getLong(i);
+                wheelGroups.remove(wheelPos);
+                unindexWheel(wheelPos, groupId, null);
+                CrushingWheelRecipeSelector.LOGGER.debug("Unlinked wheel at {} (group {} dissolved)", BlockPos.of(wheelPos), groupId);
+            }
+
+            // Remove the group's preferences and profile subscription, and recycle its ID
+            freeGroup(groupId);
+            invalidateReadView();
+            markJournaled(journal != null && journal.appendUnlink(pos.asLong()));
+
+            CrushingWheelRecipeSelector.LOGGER.debug("Dissolved group {} - {} wheel(s) unlinked", groupId, wheelsInGroup.size());
+        }
+    }
+
+    /**
+     * Remove a wheel completely (alias for unlinkWheel, for compatibility)
+     */
+    public void removeWheel(BlockPos pos) {
+        unlinkWheel(pos);
+    }
+
+    /**
+     * Check if a wheel is linked to any group
+     */
+    public boolean isWheelLinked(BlockPos pos) {
+        return wheelGroups.containsKey(pos.asLong());
+    }
+
+    // ==================== RECONCILIATION ====================
+
+    // Time each level may spend checking links against the world per tick
+    private static final long RECONCILE_BUDGET_NANOS = 100_000L;
+
+    // Next group ID to check - groups are walked round-robin across ticks.
+    // NOT persisted - a restart simply starts the walk over
+    private int reconcileCursor = 0;
+
+    /**
+     * Unlink groups whose wheels no longer form a valid pair.
+     *
+     * PERFORMANCE OPTIMIZATION:
+     * BreakHandler only sees wheels broken by players - explosions, pistons, /fill and
+     * contraptions leave dead links behind that keep their controllers in the cache.
+     * This checks a slice of the groups each tick, within RECONCILE_BUDGET_NANOS, so
+     * the whole set is revisited over time without a lag spike. Groups with a wheel in
+     * an unloaded chunk are skipped (never loads chunks) and retried on the next pass.
+     *
+     * @return number of groups unlinked
+     */
+    public int reconcile(ServerLevel level) {
+        if (groupCount == 0) {
+            return 0;
+        }
+
+        long deadline = System.nanoTime() + RECONCILE_BUDGET_NANOS;
+        int unlinked = 0;
+        // At most one full pass per tick, even if the budget allows more
+        for (int checked = 0; checked < groupCount; checked++) {
+            if (reconcileCursor >= groupCount) {
+                reconcileCursor = 0;
+            }
+            LongList wheels = groupWheels[reconcileCursor++];
+            if (wheels != null && isStaleGroup(level, wheels)) {
+                BlockPos wheel = BlockPos.of(wheels.getLong(0));
+                CrushingWheelRecipeSelector.LOGGER.debug("Unlinking stale crushing wheel group at {}", wheel);
+                unlinkWheel(wheel);
+                unlinked++;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+        return unlinked;
+    }
+
+    /**
+     * A group is stale if its wheels are all loaded and don't form a valid pair.
+     * A group with a single wheel left (its pair was relinked elsewhere) can never
+     * drive a controller, so it is stale once that wheel is loaded.
+     */
+    private static boolean isStaleGroup(ServerLevel level, LongList wheels) {
+        for (int i = 0; i < wheels.size(); i++) {
+            if (!level.isLoaded(BlockPos.of(wheels.getLong(i)))) {
+                return false;
+            }
+        }
+        return wheels.size() != 2
+                || !CrushingWheelPairHelper.isValidPair(level, BlockPos.of(wheels.getLong(0)), BlockPos.of(wheels.getLong(1)));
+    }
+
+    // ==================== AREA QUERIES ====================
+
+    /**
+     * Get the groups with at least one wheel inside a box.
+     * Only the chunks the box overlaps are visited - or, for boxes spanning more chunks
+     * than have linked wheels, only the indexed chunks.
+     */
+    public IntSet getGroupsInBox(BoundingBox box) {
+        IntSet result = new IntLinkedOpenHashSet();
+        int minChunkX = SectionPos.blockToSectionCoord(box.minX());
+        int maxChunkX = SectionPos.blockToSectionCoord(box.maxX());
+        int minChunkZ = SectionPos.blockToSectionCoord(box.minZ());
+        int maxChunkZ = SectionPos.blockToSectionCoord(box.maxZ());
+        long chunkCount = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+
+        if (chunkCount > chunkGroups.size()) {
+            for (Long2ObjectMap.Entry<IntSet> entry : chunkGroups.long2ObjectEntrySet()) {
+                int chunkX = ChunkPos.getX(entry.getLongKey());
+                int chunkZ = ChunkPos.getZ(entry.getLongKey());
+                if (chunkX >= minChunkX && chunkX <= maxChunkX && chunkZ >= minChunkZ && chunkZ <= maxChunkZ) {
+                    collectGroupsInBox(entry.getValue(), box, result);
+                }
+            }
+            return result;
+        }
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                IntSet groups = chunkGroups.get(ChunkPos.asLong(chunkX, chunkZ));
+                if (groups != null) {
+                    collectGroupsInBox(groups, box, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void collectGroupsInBox(IntSet groups, BoundingBox box, IntSet result) {
+        IntIterator iterator = groups.iterator();
+        while (iterator.hasNext()) {
+            int groupId = iterator.nextInt();
+            if (!result.contains(groupId) && isGroupInBox(groupId, box)) {
+                result.add(groupId);
+            }
+        }
+    }
+
+    private boolean isGroupInBox(int groupId, BoundingBox box) {
+        LongList wheels = groupWheels[groupId];
+        if (wheels == null) {
+            return false;
+        }
+        for (int i = 0; i < wheels.size(); i++) {
+            long packedPos = wheels.getLong(i);
+            if (box.isInside(BlockPos.getX(packedPos), BlockPos.getY(packedPos), BlockPos.getZ(packedPos))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the wheel positions of a group
+     */
+    public List<BlockPos> getGroupWheels(int groupId) {
+        LongList wheels = groupWheels[groupId];
+        if (wheels == null) {
+            return Collections.emptyList();
+        }
+        List<BlockPos> positions = new ArrayList<>(wheels.size());
+        for (int i = 0; i < wheels.size(); i++) {
+            positions.add(BlockPos.of(wheels.getLong(i)));
+        }
+        return positions;
+    }
+
+    /**
+     * Get the profile a group is subscribed to, or null
+     */
+    @Nullable
+    public String getGroupProfile(int groupId) {
+        return groupProfiles[groupId];
+    }
+
+    /**
+     * Get the number of preferences in effect for a group
+     */
+    public int getGroupPreferenceCount(int groupId) {
+        return getGroupPreferences(groupId).size();
+    }
+
+    /**
+     * Subscribe every group in a box to a profile - one generation bump and dirty mark
+     *
+     * @return number of groups updated, or -1 if the profile doesn't exist
+     */
+    public int applyProfileInBox(String name, BoundingBox box) {
+        if (!profiles.containsKey(name)) {
+            return -1;
+        }
+
+        IntSet groups = getGroupsInBox(box);
+        IntIterator iterator = groups.iterator();
+        while (iterator.hasNext()) {
+            int groupId = iterator.nextInt();
+            groupProfiles[groupId] = name;
+            removeOwnPreferences(groupId);
+            refreshGroupCell(groupId);
+        }
+        if (!groups.isEmpty()) {
+            markDirtyFull();
+        }
+        return groups.size();
+    }
+
+    /**
+     * Clear the preferences (and profile subscriptions) of every group in a box.
+     * The wheels stay linked.
+     *
+     * @return number of groups cleared
+     */
+    public int clearPreferencesInBox(BoundingBox box) {
+        IntSet groups = getGroupsInBox(box);
+        IntIterator iterator = groups.iterator();
+        while (iterator.hasNext()) {
+            int groupId = iterator.nextInt();
+            groupProfiles[groupId] = null;
+            removeOwnPreferences(groupId);
+            refreshGroupCell(groupId);
+        }
+        if (!groups.isEmpty()) {
+            markDirtyFull();
+        }
+        return groups.size();
+    }
+
+    // ==================== PREFERENCES ====================
+
+    /**
+     * Set a recipe preference for a wheel (applies to entire group).
+     * Preferences for items that aren't registered are kept by ID (e.g. on journal replay).
+     */
+    public void setPreferredRecipe(BlockPos wheelPos, String inputItemId, ResourceLocation recipeId) {
+        Item inputItem = parseItem(inputItemId);
+        if (inputItem != null) {
+            setPreferredRecipe(wheelPos, inputItem, recipeId);
+            return;
+        }
+
+        int groupId = wheelGroups.get(wheelPos.asLong());
+        if (groupId < 0 || ResourceLocation.tryParse(inputItemId) == null) {
+            CrushingWheelRecipeSelector.LOGGER.warn("Cannot set preference for {} - wheel at {} is not linked or item ID is invalid",
+                    inputItemId, wheelPos);
+            return;
+        }
+
+        if (updateGroupPreferences(groupId, getGroupPreferences(groupId).withUnresolved(inputItemId, recipeId))) {
+            markJournaled(journal != null && journal.appendSelect(wheelPos.asLong(), inputItemId, recipeId));
+        }
+    }
+
+    /**
+     * Set a recipe preference for a wheel (applies to entire group)
+     */
+    public void setPreferredRecipe(BlockPos wheelPos, Item inputItem, ResourceLocation recipeId) {
+        int groupId = wheelGroups.get(wheelPos.asLong());
+        if (groupId < 0) {
+            CrushingWheelRecipeSelector.LOGGER.warn("Cannot set preference - wheel at {} is not linked", wheelPos);
+            return;
+        }
+
+        if (updateGroupPreferences(groupId, getGroupPreferences(groupId).with(inputItem, recipeId))) {
+            markJournaled(journal != null && journal.appendSelect(wheelPos.asLong(), getItemId(inputItem), recipeId));
+        }
+
+        CrushingWheelRecipeSelector.LOGGER.debug("Set preference for group {}: {} -> {}", groupId, inputItem, recipeId);
+    }
+
+    /**
+     * Get the preferred recipe for a wheel and input item
+     */
+    public ResourceLocation getPreferredRecipe(BlockPos wheelPos, Item inputItem) {
+        int groupId = wheelGroups.get(wheelPos.asLong());
+        if (groupId < 0) {
+            return null;
+        }
+
+        return getGroupPreferences(groupId).get(inputItem);
+    }
+
+    /**
+     * Clear a recipe preference for a wheel
+     */
+    public void clearPreferredRecipe(BlockPos wheelPos, String inputItemId) {
+        Item inputItem = parseItem(inputItemId);
+        if (inputItem != null) {
+            clearPreferredRecipe(wheelPos, inputItem);
+            return;
+        }
+
+        int groupId = wheelGroups.get(wheelPos.asLong());
+        if (groupId < 0) {
+            return;
+        }
+
+        if (updateGroupPreferences(groupId, getGroupPreferences(groupId).withoutUnresolved(inputItemId))) {
+            markJournaled(journal != null && journal.appendClear(wheelPos.asLong(), inputItemId));
+        }
+    }
+
+    /**
+     * Clear a recipe preference for a wheel
+     */
+    public void clearPreferredRecipe(BlockPos wheelPos, Item inputItem) {
+        int groupId = wheelGroups.get(wheelPos.asLong());
+        if (groupId < 0) {
+            return;
+        }
 
-    // Map: Group UUID -> Map<InputItemId, PreferredRecipeId>
-    private final Map<UUID, Map<String, ResourceLocation>> groupPreferences = new HashMap<>();
+        if (updateGroupPreferences(groupId, getGroupPreferences(groupId).without(inputItem))) {
+            markJournaled(journal != null && journal.appendClear(wheelPos.asLong(), getItemId(inputItem)));
+        }
+    }
 
-    // PERFORMANCE CACHE: Set of controller positions that have linked wheels nearby
-    // This allows the mixin to skip processing for unlinked wheels with a single HashSet lookup
-    // This is NOT persisted - it's rebuilt from wheelGroups on load and after any changes
-    private final Set<BlockPos> activeControllerPositions = new HashSet<>();
+    /**
+     * Effective preferences of a group - its profile's table if subscribed, else its own
+     */
+    private PreferenceTable getGroupPreferences(int groupId) {
+        String profile = groupProfiles[groupId];
+        PreferenceTable table = profile != null ? profiles.get(profile) : getOwnPreferences(groupId);
+        return table != null ? table : PreferenceTable.EMPTY;
+    }
 
-    public CrushingWheelSelections() {
+    /**
+     * A group's own preference table, decoding it on first access after load
+     */
+    @Nullable
+    private PreferenceTable getOwnPreferences(int groupId) {
+        PreferenceTable table = groupPreferences[groupId];
+        if (table == null) {
+            EncodedTable encoded = encodedPreferences[groupId];
+            if (encoded != null) {
+                table = encoded.decode();
+                groupPreferences[groupId] = table;
+                encodedPreferences[groupId] = null;
+            }
+        }
+        return table;
     }
 
-    // ==================== CONTROLLER CACHE ====================
+    private void removeOwnPreferences(int groupId) {
+        groupPreferences[groupId] = null;
+        encodedPreferences[groupId] = null;
+    }
 
     /**
-     * Fast check for the mixin - returns true if this controller position
-     * is between linked crushing wheels.
+     * Copy-on-write update of a group's effective preferences.
+     * If the group is subscribed to a profile, the profile itself is replaced, which
+     * updates every subscribed group in one write.
      *
-     * This is O(1) and allows unlinked wheels to skip all mixin processing.
+     * @return true if the preferences changed
      */
-    public boolean isControllerActive(BlockPos controllerPos) {
-        return activeControllerPositions.contains(controllerPos);
+    private boolean updateGroupPreferences(int groupId, PreferenceTable updated) {
+        String profile = groupProfiles[groupId];
+        PreferenceTable previous;
+        if (profile != null) {
+            previous = profiles.put(profile, updated);
+            refreshProfileCell(profile);
+        } else {
+            previous = groupPreferences[groupId];
+            groupPreferences[groupId] = updated;
+            refreshGroupCell(groupId);
+        }
+        return previous != updated;
     }
 
+    private static final Map<String, ResourceLocation> EMPTY_PREFERENCES = Collections.emptyMap();
+
     /**
-     * Rebuild the controller position cache from wheel groups.
-     * Called after any link/unlink operation and after loading from NBT.
-     *
-     * Uses CrushingWheelPairHelper to calculate exact controller positions
-     * based on the midpoint between paired wheels.
+     * Get all preferences for a wheel's group, keyed by item ID string (for packets/GUI)
      */
-    private void rebuildControllerCache() {
-        activeControllerPositions.clear();
-
-        // Group wheels by their group UUID
-        Map<UUID, List<BlockPos>> wheelsByGroup = new HashMap<>();
-        for (Map.Entry<BlockPos, UUID> entry : wheelGroups.entrySet()) {
-            wheelsByGroup.computeIfAbsent(entry.getValue(), k -> new ArrayList<>(2))
-                    .add(entry.getKey());
+    public Map<String, ResourceLocation> getAllPreferences(BlockPos wheelPos) {
+        int groupId = wheelGroups.get(wheelPos.asLong());
+        if (groupId < 0) {
+            return EMPTY_PREFERENCES;
         }
 
-        // For each group with exactly 2 wheels, calculate the controller position
-        for (Map.Entry<UUID, List<BlockPos>> entry : wheelsByGroup.entrySet()) {
-            List<BlockPos> wheels = entry.getValue();
-            if (wheels.size() == 2) {
-                BlockPos wheel1 = wheels.get(0);
-                BlockPos wheel2 = wheels.get(1);
+        return toItemIdMap(getGroupPreferences(groupId));
+    }
 
-                // Use the helper to calculate the exact controller position
-                BlockPos controllerPos = CrushingWheelPairHelper.getControllerPosition(wheel1, wheel2);
-                activeControllerPositions.add(controllerPos);
-            }
+    private static Map<String, ResourceLocation> toItemIdMap(PreferenceTable table) {
+        if (table.isEmpty()) {
+            return EMPTY_PREFERENCES;
         }
 
-        CrushingWheelRecipeSelector.LOGGER.debug("Rebuilt controller cache: {} active controller(s)",
-                activeControllerPositions.size());
+        Map<String, ResourceLocation> byItemId = new HashMap<>(table.size());
+        for (Map.Entry<Item, ResourceLocation> pref : table.asMap().entrySet()) {
+            byItemId.put(getItemId(pref.getKey()), pref.getValue());
+        }
+        byItemId.putAll(table.getUnresolved());
+        return byItemId;
     }
 
-    // ==================== LINKING ====================
+    // ==================== PROFILES ====================
 
     /**
-     * Link a wheel to a group
+     * Save a wheel's current (effective) preferences as a named profile.
+     * Overwrites an existing profile of the same name, which updates all its subscribers.
+     *
+     * @return false if the wheel is not linked
      */
-    public void linkWheel(BlockPos pos, UUID groupId) {
-        wheelGroups.put(pos, groupId);
-        groupPreferences.computeIfAbsent(groupId, k -> new HashMap<>());
+    public boolean saveProfile(String name, BlockPos wheelPos) {
+        int groupId = wheelGroups.get(wheelPos.asLong());
+        if (groupId < 0) {
+            return false;
+        }
 
-        // Rebuild cache after linking
-        rebuildControllerCache();
-        setDirty();
+        profiles.put(name, getGroupPreferences(groupId));
+        refreshProfileCell(name);
+        markDirtyFull();
 
-        CrushingWheelRecipeSelector.LOGGER.debug("Linked wheel at {} to group {}", pos, groupId);
+        CrushingWheelRecipeSelector.LOGGER.debug("Saved profile {} from group {}", name, groupId);
+        return true;
     }
 
     /**
-     * Unlink a wheel and its pair (called when wheel is broken)
-     * Both wheels in a pair must be unlinked when one is broken
+     * Subscribe a wheel's group to a named profile - the group's own table is dropped.
+     * Journaled like a select, so auto-linking with a default profile needs no full snapshot.
+     *
+     * @return false if the wheel is not linked or the profile doesn't exist
      */
-    public void unlinkWheel(BlockPos pos) {
-        UUID groupId = wheelGroups.get(pos);
-        if (groupId != null) {
-            // Find and unlink ALL wheels in this group (the pair)
-            List<BlockPos> wheelsInGroup = new ArrayList<>();
-            for (Map.Entry<BlockPos, UUID> entry : wheelGroups.entrySet()) {
-                if (entry.getValue().equals(groupId)) {
-                    wheelsInGroup.add(entry.getKey());
-                }
-            }
+    public boolean applyProfile(String name, BlockPos wheelPos) {
+        int groupId = wheelGroups.get(wheelPos.asLong());
+        if (groupId < 0 || !profiles.containsKey(name)) {
+            return false;
+        }
 
-            // Remove all wheels from this group
-            for (BlockPos wheelPos : wheelsInGroup) {
-                wheelGroups.remove(wheelPos);
-                CrushingWheelRecipeSelector.LOGGER.debug("Unlinked wheel at {} (group {} dissolved)", wheelPos, groupId);
-            }
+        groupProfiles[groupId] = name;
+        removeOwnPreferences(groupId);
+        refreshGroupCell(groupId);
+        markJournaled(journal != null && journal.appendSubscribe(wheelPos.asLong(), name));
+        return true;
+    }
 
-            // Remove the group's preferences
-            groupPreferences.remove(groupId);
+    /**
+     * Unsubscribe a wheel's group from its profile.
+     * The group keeps a (shared, copy-on-write) reference to the profile's current preferences.
+     *
+     * @return false if the wheel is not linked or not subscribed
+     */
+    public boolean detachProfile(BlockPos wheelPos) {
+        int groupId = wheelGroups.get(wheelPos.asLong());
+        if (groupId < 0 || groupProfiles[groupId] == null) {
+            return false;
+        }
 
-            // Rebuild cache after unlinking
-            rebuildControllerCache();
-            setDirty();
+        groupPreferences[groupId] = getGroupPreferences(groupId);
+        groupProfiles[groupId] = null;
+        refreshGroupCell(groupId);
+        markDirtyFull();
+        return true;
+    }
 
-            CrushingWheelRecipeSelector.LOGGER.debug("Dissolved group {} - {} wheel(s) unlinked", groupId, wheelsInGroup.size());
+    /**
+     * Delete a profile - subscribed groups are detached and keep its preferences
+     *
+     * @return number of groups that were subscribed, or -1 if the profile doesn't exist
+     */
+    public int deleteProfile(String name) {
+        PreferenceTable table = profiles.remove(name);
+        if (table == null) {
+            return -1;
+        }
+
+        int detached = 0;
+        for (int groupId = 0; groupId < groupCount; groupId++) {
+            if (name.equals(groupProfiles[groupId])) {
+                groupPreferences[groupId] = table;
+                groupProfiles[groupId] = null;
+                refreshGroupCell(groupId);
+                detached++;
+            }
         }
+        profileCells.remove(name);
+        if (name.equals(defaultProfile)) {
+            defaultProfile = null;
+        }
+
+        markDirtyFull();
+        return detached;
     }
 
     /**
-     * Remove a wheel completely (alias for unlinkWheel, for compatibility)
+     * Get the profile a wheel's group is subscribed to, or null
      */
-    public void removeWheel(BlockPos pos) {
-        unlinkWheel(pos);
+    @Nullable
+    public String getWheelProfile(BlockPos wheelPos) {
+        int groupId = wheelGroups.get(wheelPos.asLong());
+        return groupId >= 0 ? groupProfiles[groupId] : null;
+    }
+
+    public Set<String> getProfileNames() {
+        return Collections.unmodifiableSet(profiles.keySet());
     }
 
     /**
-     * Check if a wheel is linked to any group
+     * Get a profile's preferences keyed by item ID string, or null if it doesn't exist
      */
-    public boolean isWheelLinked(BlockPos pos) {
-        return wheelGroups.containsKey(pos);
+    @Nullable
+    public Map<String, ResourceLocation> getProfilePreferences(String name) {
+        PreferenceTable table = profiles.get(name);
+        return table != null ? toItemIdMap(table) : null;
     }
 
     /**
-     * Get the group ID for a wheel
+     * Count the groups subscribed to a profile
      */
-    public UUID getWheelGroup(BlockPos pos) {
-        return wheelGroups.get(pos);
+    public int getProfileSubscriberCount(String name) {
+        int count = 0;
+        for (int groupId = 0; groupId < groupCount; groupId++) {
+            if (name.equals(groupProfiles[groupId])) {
+                count++;
+            }
+        }
+        return count;
     }
 
-    // ==================== PREFERENCES ====================
+    // ==================== SETTINGS ====================
+
+    // Link a newly placed crushing wheel with its partner automatically (see PlaceHandler)
+    private boolean autoLinkOnPlace = false;
+
+    // Profile that automatically linked pairs subscribe to, or null
+    @Nullable
+    private String defaultProfile;
+
+    // Radius the wrench searches for nearby misaligned wheels to highlight
+    private int linkSearchRadius = WheelLinkingHelper.DEFAULT_SEARCH_RADIUS;
+
+    public boolean isAutoLinkOnPlace() {
+        return autoLinkOnPlace;
+    }
+
+    public void setAutoLinkOnPlace(boolean autoLinkOnPlace) {
+        this.autoLinkOnPlace = autoLinkOnPlace;
+        markDirtyFull();
+    }
+
+    @Nullable
+    public String getDefaultProfile() {
+        return defaultProfile;
+    }
 
     /**
-     * Set a recipe preference for a wheel (applies to entire group)
+     * Set (or clear, with null) the profile automatically linked pairs subscribe to
+     *
+     * @return false if the profile doesn't exist
      */
-    public void setPreferredRecipe(BlockPos wheelPos, String inputItemId, ResourceLocation recipeId) {
-        UUID groupId = wheelGroups.get(wheelPos);
-        if (groupId == null) {
-            CrushingWheelRecipeSelector.LOGGER.warn("Cannot set preference - wheel at {} is not linked", wheelPos);
-            return;
+    public boolean setDefaultProfile(@Nullable String name) {
+        if (name != null && !profiles.containsKey(name)) {
+            return false;
         }
+        defaultProfile = name;
+        markDirtyFull();
+        return true;
+    }
 
-        Map<String, ResourceLocation> prefs = groupPreferences.computeIfAbsent(groupId, k -> new HashMap<>());
-        prefs.put(inputItemId, recipeId);
-        setDirty();
+    public int getLinkSearchRadius() {
+        return linkSearchRadius;
+    }
 
-        CrushingWheelRecipeSelector.LOGGER.debug("Set preference for group {}: {} -> {}", groupId, inputItemId, recipeId);
+    public void setLinkSearchRadius(int radius) {
+        linkSearchRadius = Math.max(1, Math.min(radius, WheelLinkingHelper.MAX_SEARCH_RADIUS));
+        markDirtyFull();
     }
 
+    // ==================== ITEM ID CONVERSION ====================
+
     /**
-     * Get the preferred recipe for a wheel and input item
+     * Resolve an item ID string to its Item - returns null for unknown/malformed IDs
      */
-    public ResourceLocation getPreferredRecipe(BlockPos wheelPos, String inputItemId) {
-        UUID groupId = wheelGroups.get(wheelPos);
-        if (groupId == null) {
+    @Nullable
+    private static Item parseItem(String itemId) {
+        ResourceLocation key = ResourceLocation.tryParse(itemId);
+        if (key == null) {
             return null;
         }
+        return BuiltInRegistries.ITEM.getOptional(key).orElse(null);
+    }
 
-        Map<String, ResourceLocation> prefs = groupPreferences.get(groupId);
-        if (prefs == null) {
-            return null;
+    private static String getItemId(Item item) {
+        return BuiltInRegistries.ITEM.getKey(item).toString();
+    }
+
+    // ==================== JOURNAL ====================
+
+    /**
+     * Replay and open the change journal for this level's selections.
+     *
+     * Replayed changes are folded into a fresh snapshot straight away, on an epoch past
+     * any the replayed journals used, so the journal always restarts empty.
+     */
+    private void attachJournal(ServerLevel serverLevel) {
+        Path dataFolder = DimensionType.getStorageFolder(serverLevel.dimension(),
+                serverLevel.getServer().getWorldPath(LevelResource.ROOT)).resolve("data");
+        Path journalPath = dataFolder.resolve(DATA_NAME + ".journal");
+
+        int replayed = SelectionsJournal.replay(journalPath, journalEpoch, this);
+        if (replayed > 0) {
+            awaitPendingWrite();
+            journalEpoch += 2;
+            if (!writeSnapshot(dataFolder.resolve(DATA_NAME + ".dat"), snapshot())) {
+                // Keep the journals as they are - the next autosave writes a full snapshot
+                return;
+            }
+            setDirty(false);
         }
 
-        return prefs.get(inputItemId);
+        journal = SelectionsJournal.open(journalPath, journalEpoch);
     }
 
     /**
-     * Clear a recipe preference for a wheel
+     * Close the change journal - called when the level unloads
      */
-    public void clearPreferredRecipe(BlockPos wheelPos, String inputItemId) {
-        UUID groupId = wheelGroups.get(wheelPos);
-        if (groupId == null) {
-            return;
+    public void closeJournal() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
         }
+    }
 
-        Map<String, ResourceLocation> prefs = groupPreferences.get(groupId);
-        if (prefs != null) {
-            prefs.remove(inputItemId);
+    /**
+     * After a change that was (or failed to be) appended to the journal.
+     * Without a journal the change can only be persisted by a full snapshot; with one,
+     * the snapshot is only rewritten once enough operations have piled up.
+     */
+    private void markJournaled(boolean appended) {
+        if (!appended || journal.getOpCount() >= JOURNAL_COMPACT_THRESHOLD) {
             setDirty();
         }
     }
 
-    private static final Map<String, ResourceLocation> EMPTY_PREFERENCES = Collections.emptyMap();
+    /**
+     * After a change the journal can't express - needs a full snapshot, and journal
+     * replay must not run past it
+     */
+    private void markDirtyFull() {
+        setDirty();
+        if (journal != null) {
+            journal.appendBarrier();
+        }
+    }
+
+    // ==================== SNAPSHOT WRITES ====================
+
+    // Encodes, compresses and writes snapshots off the server thread.
+    // Single thread, so writes land in the order they were taken.
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CrushingWheelSelections-Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Last snapshot write of this instance (null if none yet)
+    @Nullable
+    private CompletableFuture<Boolean> pendingWrite;
 
     /**
-     * Get all preferences for a wheel's group - returns unmodifiable view
+     * PERFORMANCE OPTIMIZATION: Off-thread snapshot writes
+     *
+     * Only an immutable copy of the maps is taken on the server thread; building the NBT
+     * tree, compressing and writing happen on the WRITER thread. The file is written to a
+     * temp file and atomically moved into place, so a crash mid-write never leaves a
+     * truncated snapshot.
+     *
+     * The journal is rotated at the moment the snapshot is taken. Until the write lands,
+     * the previous journal (kept as ".old") still extends the previous snapshot, so a
+     * crash in between replays both journals on top of it.
+     *
+     * If a write failed, the snapshot on disk is still the one ".old" extends. The retry
+     * keeps the failed snapshot's epoch and appends the current journal to ".old" instead
+     * of replacing it, so ".old" keeps leading from the last snapshot that landed.
      */
-    public Map<String, ResourceLocation> getAllPreferences(BlockPos wheelPos) {
-        UUID groupId = wheelGroups.get(wheelPos);
-        if (groupId == null) {
-            return EMPTY_PREFERENCES;
+    @Override
+    public void save(File file, HolderLookup.Provider registries) {
+        if (readOnly) {
+            return;
+        }
+
+        // A failed write left this snapshot unsaved - write it again
+        if (pendingWrite != null && pendingWrite.isDone() && !pendingWrite.join()) {
+            setDirty();
+        }
+        if (!isDirty()) {
+            return;
+        }
+
+        // The ".old" journal must not be replaced before the snapshot it leads up to has landed
+        boolean previousWriteFailed = pendingWrite != null && !pendingWrite.join();
+        pendingWrite = null;
+
+        if (!previousWriteFailed) {
+            journalEpoch++;
+        }
+        Snapshot snapshot = snapshot();
+        setDirty(false);
+        if (journal != null) {
+            journal.rotate(journalEpoch, previousWriteFailed);
         }
 
-        Map<String, ResourceLocation> prefs = groupPreferences.get(groupId);
-        return prefs != null ? Collections.unmodifiableMap(prefs) : EMPTY_PREFERENCES;
+        Path path = file.toPath();
+        pendingWrite = CompletableFuture.supplyAsync(() -> writeSnapshot(path, snapshot), WRITER);
+    }
+
+    private void awaitPendingWrite() {
+        if (pendingWrite != null) {
+            pendingWrite.join();
+        }
+    }
+
+    /**
+     * Wait for every queued snapshot write - called once the server has stopped
+     */
+    public static void awaitPendingWrites() {
+        CompletableFuture.runAsync(() -> {
+        }, WRITER).join();
+    }
+
+    /**
+     * Encode and write a snapshot in the SavedData file layout, via a temp file and an atomic move
+     *
+     * @return false if the write failed
+     */
+    private static boolean writeSnapshot(Path path, Snapshot snapshot) {
+        CompoundTag root = new CompoundTag();
+        root.put("data", encode(snapshot, new CompoundTag()));
+        NbtUtils.addCurrentDataVersion(root);
+
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            NbtIo.writeCompressed(root, tempPath);
+            try {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            CrushingWheelRecipeSelector.LOGGER.error("Could not save crushing wheel selections to {}", path, e);
+            return false;
+        }
     }
 
     // ==================== PERSISTENCE ====================
+    //
+    // FORMAT 3 (compact, int group IDs):
+    // - "strings":      string table - every item ID, recipe ID and profile name, written once
+    // - "groupCount":   int - group IDs are 0 .. groupCount - 1 (IDs without wheels are free)
+    // - "wheels":       long[wheels] - packed wheel positions (BlockPos.asLong)
+    // - "wheelGroups":  int[wheels] - group ID of each wheel
+    // - "tables":       list of int[2 * prefs] - distinct preference tables as (item, recipe) string indices
+    // - "groupTables":  int[groupCount] - table index of each group, or -1
+    // - "groupProfiles": int[groupCount] - profile name string index of each group, or -1
+    // - "profiles":     int[2 * profiles] - (name string index, table index) pairs
+    // - "autoLinkOnPlace", "defaultProfile", "linkSearchRadius" (optional): world settings, see SETTINGS
+    //
+    // LEGACY (no "format" key): one compound per wheel with x/y/z + UUID, and one
+    // compound per preference with full item and recipe ID strings. Still readable -
+    // each group UUID is given a fresh group ID on load.
+
+    private static final int FORMAT_VERSION = 3;
+
+    // Saved by a newer version in a format this one can't read - the selections start
+    // empty and are never written back (nor is the journal touched), so the newer data survives
+    private boolean readOnly = false;
 
     public static CrushingWheelSelections load(CompoundTag tag, HolderLookup.Provider registries) {
         CrushingWheelSelections data = new CrushingWheelSelections();
 
+        int format = tag.getInt("format");
+        if (format > FORMAT_VERSION) {
+            CrushingWheelRecipeSelector.LOGGER.error("Selections were saved in a newer format ({}, this version reads up to {}) - "
+                    + "leaving them untouched; changes made in this session will not be saved", format, FORMAT_VERSION);
+            data.readOnly = true;
+            data.publishReadView();
+            return data;
+        }
+        if (format == 0) {
+            data.loadLegacy(tag);
+        } else {
+            if (format != FORMAT_VERSION) {
+                CrushingWheelRecipeSelector.LOGGER.warn("Selections were saved in an unknown format ({}) - loading as format {}",
+                        format, FORMAT_VERSION);
+            }
+            data.loadCompact(tag);
+        }
+        data.journalEpoch = tag.getLong("journalEpoch");
+        data.autoLinkOnPlace = tag.getBoolean("autoLinkOnPlace");
+        if (tag.contains("defaultProfile", Tag.TAG_STRING) && data.profiles.containsKey(tag.getString("defaultProfile"))) {
+            data.defaultProfile = tag.getString("defaultProfile");
+        }
+        if (tag.contains("linkSearchRadius", Tag.TAG_INT)) {
+            data.linkSearchRadius = Math.max(1, Math.min(tag.getInt("linkSearchRadius"), WheelLinkingHelper.MAX_SEARCH_RADIUS));
+        }
+
+        // Drop subscriptions to profiles that no longer exist
+        for (int groupId = 0; groupId < data.groupCount; groupId++) {
+            String profile = data.groupProfiles[groupId];
+            if (profile != null && !data.profiles.containsKey(profile)) {
+                data.groupProfiles[groupId] = null;
+            }
+        }
+
+        // Rebuild controller cache after loading
+        data.rebuildControllerCache();
+
+        // Groups without wheels are unreachable - recycle their IDs
+        int groupsWithPreferences = 0;
+        for (int groupId = 0; groupId < data.groupCount; groupId++) {
+            if (data.groupWheels[groupId] == null) {
+                data.freeGroup(groupId);
+            } else if (data.groupPreferences[groupId] != null || data.encodedPreferences[groupId] != null) {
+                groupsWithPreferences++;
+            }
+        }
+        data.publishReadView();
+
+        CrushingWheelRecipeSelector.LOGGER.info("Loaded {} wheel groups, {} group preferences, {} profiles, {} active controllers",
+                data.groupCount - data.freeGroupIds.cardinality(), groupsWithPreferences,
+                data.profiles.size(), data.controllerGroups.size());
+
+        return data;
+    }
+
+    private void loadCompact(CompoundTag tag) {
+        ListTag stringsList = tag.getList("strings", Tag.TAG_STRING);
+        String[] strings = new String[stringsList.size()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = stringsList.getString(i);
+        }
+
+        groupCount = tag.getInt("groupCount");
+        ensureGroupCapacity(groupCount);
+
+        // Wheels
+        long[] wheels = tag.getLongArray("wheels");
+        int[] wheelGroupIds = tag.getIntArray("wheelGroups");
+        int wheelCount = Math.min(wheels.length, wheelGroupIds.length);
+        wheelGroups.ensureCapacity(wheelCount);
+        for (int i = 0; i < wheelCount; i++) {
+            if (wheelGroupIds[i] >= 0 && wheelGroupIds[i] < groupCount) {
+                wheelGroups.put(wheels[i], wheelGroupIds[i]);
+            }
+        }
+
+        // Distinct preference tables - kept encoded, and decoded at most once however many groups share one
+        ListTag tablesList = tag.getList("tables", Tag.TAG_INT_ARRAY);
+        EncodedTable[] tables = new EncodedTable[tablesList.size()];
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = new EncodedTable(tablesList.getIntArray(i), strings);
+        }
+
+        // Group tables and profile subscriptions
+        int[] groupTables = tag.getIntArray("groupTables");
+        int[] groupProfileNames = tag.getIntArray("groupProfiles");
+        for (int groupId = 0; groupId < groupCount; groupId++) {
+            if (groupId < groupProfileNames.length && groupProfileNames[groupId] >= 0) {
+                groupProfiles[groupId] = strings[groupProfileNames[groupId]];
+            } else if (groupId < groupTables.length && groupTables[groupId] >= 0) {
+                encodedPreferences[groupId] = tables[groupTables[groupId]];
+            }
+        }
+
+        // Profiles - few, and shared by many groups, so decoded eagerly
+        int[] profileEntries = tag.getIntArray("profiles");
+        for (int i = 0; i + 1 < profileEntries.length; i += 2) {
+            profiles.put(strings[profileEntries[i]], tables[profileEntries[i + 1]].decode());
+        }
+    }
+
+    private static PreferenceTable decodeTable(int[] entries, String[] strings) {
+        return readTable(entries.length / 2, i -> strings[entries[2 * i]], i -> strings[entries[2 * i + 1]], "saved table");
+    }
+
+    /**
+     * Build a table from (item ID, recipe ID) pairs read from NBT.
+     * Preferences for unknown items are kept by ID so they survive the next save.
+     */
+    private static PreferenceTable readTable(int size, IntFunction<String> inputItemIds, IntFunction<String> recipeIds,
+                                             String owner) {
+        Map<Item, ResourceLocation> prefs = new IdentityHashMap<>();
+        Map<String, ResourceLocation> unresolved = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String inputItemId = inputItemIds.apply(i);
+            ResourceLocation recipeId = ResourceLocation.parse(recipeIds.apply(i));
+            Item inputItem = parseItem(inputItemId);
+            if (inputItem == null) {
+                CrushingWheelRecipeSelector.LOGGER.warn("Keeping preference for unknown item {} in {}", inputItemId, owner);
+                unresolved.put(inputItemId, recipeId);
+            } else {
+                prefs.put(inputItem, recipeId);
+            }
+        }
+        return PreferenceTable.of(prefs, unresolved);
+    }
+
+    private void loadLegacy(CompoundTag tag) {
+        // Group UUID -> group ID
+        Map<UUID, Integer> legacyGroupIds = new HashMap<>();
+
         // Load wheel groups
         ListTag groupsList = tag.getList("wheelGroups", Tag.TAG_COMPOUND);
         for (int i = 0; i < groupsList.size(); i++) {
             CompoundTag entry = groupsList.getCompound(i);
             BlockPos pos = new BlockPos(entry.getInt("x"), entry.getInt("y"), entry.getInt("z"));
-            UUID groupId = entry.getUUID("group");
-            data.wheelGroups.put(pos, groupId);
+            wheelGroups.put(pos.asLong(), legacyGroupIds.computeIfAbsent(entry.getUUID("group"), id -> allocateGroup()));
         }
 
         // Load group preferences
         ListTag prefsList = tag.getList("groupPreferences", Tag.TAG_COMPOUND);
         for (int i = 0; i < prefsList.size(); i++) {
             CompoundTag groupTag = prefsList.getCompound(i);
-            UUID groupId = groupTag.getUUID("groupId");
+            UUID legacyId = groupTag.getUUID("groupId");
+            int groupId = legacyGroupIds.computeIfAbsent(legacyId, id -> allocateGroup());
+            groupPreferences[groupId] =
+                    loadLegacyTable(groupTag.getList("preferences", Tag.TAG_COMPOUND), "group " + legacyId);
+        }
+    }
+
+    private static PreferenceTable loadLegacyTable(ListTag itemPrefs, String owner) {
+        return readTable(itemPrefs.size(), j -> itemPrefs.getCompound(j).getString("input"),
+                j -> itemPrefs.getCompound(j).getString("recipe"), owner);
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tag, HolderLookup.Provider registries) {
+        return encode(snapshot(), tag);
+    }
+
+    /**
+     * Take an immutable copy of the persisted state. Preference tables are immutable and
+     * shared, so this only copies the map and slot arrays - cheap enough to run on the server thread.
+     */
+    private Snapshot snapshot() {
+        return new Snapshot(journalEpoch, groupCount, wheelGroups.clone(),
+                Arrays.copyOf(groupPreferences, groupCount), Arrays.copyOf(encodedPreferences, groupCount),
+                Arrays.copyOf(groupProfiles, groupCount), new TreeMap<>(profiles), autoLinkOnPlace, defaultProfile, linkSearchRadius);
+    }
+
+    /**
+     * Encode a snapshot - safe to run off the server thread
+     */
+    private static CompoundTag encode(Snapshot snapshot, CompoundTag tag) {
+        StringTable strings = new StringTable();
+
+        // Wheels - group IDs are written as-is
+        long[] wheels = new long[snapshot.wheelGroups().size()];
+        int[] wheelGroupIds = new int[snapshot.wheelGroups().size()];
+        int w = 0;
+        for (Long2IntMap.Entry entry : snapshot.wheelGroups().long2IntEntrySet()) {
+            wheels[w] = entry.getLongKey();
+            wheelGroupIds[w] = entry.getIntValue();
+            w++;
+        }
 
-            Map<String, ResourceLocation> prefs = new HashMap<>();
-            ListTag itemPrefs = groupTag.getList("preferences", Tag.TAG_COMPOUND);
-            for (int j = 0; j < itemPrefs.size(); j++) {
-                CompoundTag prefTag = itemPrefs.getCompound(j);
-                String inputItem = prefTag.getString("input");
-                String recipeId = prefTag.getString("recipe");
-                prefs.put(inputItem, ResourceLocation.parse(recipeId));
+        // Distinct preference tables - interned (or shared since load), so shared tables are written once
+        Map<Object, Integer> tableIndices = new IdentityHashMap<>();
+        ListTag tablesList = new ListTag();
+
+        int groupCount = snapshot.groupCount();
+        int[] groupTables = new int[groupCount];
+        int[] groupProfileNames = new int[groupCount];
+        for (int groupId = 0; groupId < groupCount; groupId++) {
+            PreferenceTable table = snapshot.groupPreferences()[groupId];
+            EncodedTable encoded = snapshot.encodedPreferences()[groupId];
+            String profile = snapshot.groupProfiles()[groupId];
+            if (table != null) {
+                groupTables[groupId] = tableIndex(table, tableIndices, tablesList, strings);
+            } else if (encoded != null) {
+                groupTables[groupId] = encodedTableIndex(encoded, tableIndices, tablesList, strings);
+            } else {
+                groupTables[groupId] = -1;
             }
+            groupProfileNames[groupId] = profile != null ? strings.indexOf(profile) : -1;
+        }
 
-            data.groupPreferences.put(groupId, prefs);
+        int[] profileEntries = new int[snapshot.profiles().size() * 2];
+        int p = 0;
+        for (Map.Entry<String, PreferenceTable> profileEntry : snapshot.profiles().entrySet()) {
+            profileEntries[p++] = strings.indexOf(profileEntry.getKey());
+            profileEntries[p++] = tableIndex(profileEntry.getValue(), tableIndices, tablesList, strings);
         }
 
-        // Rebuild controller cache after loading
-        data.rebuildControllerCache();
+        tag.putInt("format", FORMAT_VERSION);
+        tag.putLong("journalEpoch", snapshot.journalEpoch());
+        tag.put("strings", strings.toTag());
+        tag.putInt("groupCount", groupCount);
+        tag.putLongArray("wheels", wheels);
+        tag.putIntArray("wheelGroups", wheelGroupIds);
+        tag.put("tables", tablesList);
+        tag.putIntArray("groupTables", groupTables);
+        tag.putIntArray("groupProfiles", groupProfileNames);
+        tag.putIntArray("profiles", profileEntries);
+        tag.putBoolean("autoLinkOnPlace", snapshot.autoLinkOnPlace());
+        if (snapshot.defaultProfile() != null) {
+            tag.putString("defaultProfile", snapshot.defaultProfile());
+        }
+        tag.putInt("linkSearchRadius", snapshot.linkSearchRadius());
 
-        CrushingWheelRecipeSelector.LOGGER.info("Loaded {} wheel groups, {} group preferences, {} active controllers",
-                data.wheelGroups.size(), data.groupPreferences.size(), data.activeControllerPositions.size());
+        // Note: groupWheels, chunkGroups and controllerGroups are NOT saved - they're rebuilt on load
 
-        return data;
+        return tag;
     }
 
-    @Override
-    public CompoundTag save(CompoundTag tag, HolderLookup.Provider registries) {
-        // Save wheel groups
-        ListTag groupsList = new ListTag();
-        for (Map.Entry<BlockPos, UUID> entry : wheelGroups.entrySet()) {
-            CompoundTag entryTag = new CompoundTag();
-            entryTag.putInt("x", entry.getKey().getX());
-            entryTag.putInt("y", entry.getKey().getY());
-            entryTag.putInt("z", entry.getKey().getZ());
-            entryTag.putUUID("group", entry.getValue());
-            groupsList.add(entryTag);
+    private static int tableIndex(PreferenceTable table, Map<Object, Integer> tableIndices,
+                                  ListTag tablesList, StringTable strings) {
+        Integer index = tableIndices.get(table);
+        if (index != null) {
+            return index;
+        }
+
+        int[] entries = new int[table.size() * 2];
+        int i = 0;
+        for (Map.Entry<Item, ResourceLocation> pref : table.asMap().entrySet()) {
+            entries[i++] = strings.indexOf(getItemId(pref.getKey()));
+            entries[i++] = strings.indexOf(pref.getValue().toString());
+        }
+        for (Map.Entry<String, ResourceLocation> pref : table.getUnresolved().entrySet()) {
+            entries[i++] = strings.indexOf(pref.getKey());
+            entries[i++] = strings.indexOf(pref.getValue().toString());
         }
-        tag.put("wheelGroups", groupsList);
 
-        // Save group preferences
-        ListTag prefsList = new ListTag();
-        for (Map.Entry<UUID, Map<String, ResourceLocation>> groupEntry : groupPreferences.entrySet()) {
-            CompoundTag groupTag = new CompoundTag();
-            groupTag.putUUID("groupId", groupEntry.getKey());
+        index = tablesList.size();
+        tablesList.add(new IntArrayTag(entries));
+        tableIndices.put(table, index);
+        return index;
+    }
+
+    /**
+     * Write a still-encoded table back without decoding it - only its string indices are remapped
+     */
+    private static int encodedTableIndex(EncodedTable encoded, Map<Object, Integer> tableIndices,
+                                         ListTag tablesList, StringTable strings) {
+        Integer index = tableIndices.get(encoded);
+        if (index != null) {
+            return index;
+        }
+
+        int[] entries = new int[encoded.entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = strings.indexOf(encoded.strings[encoded.entries[i]]);
+        }
+
+        index = tablesList.size();
+        tablesList.add(new IntArrayTag(entries));
+        tableIndices.put(encoded, index);
+        return index;
+    }
+
+    /**
+     * A preference table as loaded - (item, recipe) string index pairs into the load's
+     * string table. Decoded once on first use (from any thread - see ReadView); the raw
+     * form is never modified, so it can be written back from the snapshot writer thread.
+     */
+    private static final class EncodedTable {
+        private final int[] entries;
+        private final String[] strings;
+        // Decoding is idempotent, so racing readers at worst decode twice
+        @Nullable
+        private volatile PreferenceTable decoded;
 
-            ListTag itemPrefs = new ListTag();
-            for (Map.Entry<String, ResourceLocation> pref : groupEntry.getValue().entrySet()) {
-                CompoundTag prefTag = new CompoundTag();
-                prefTag.putString("input", pref.getKey());
-                prefTag.putString("recipe", pref.getValue().toString());
-                itemPrefs.add(prefTag);
+        EncodedTable(int[] entries, String[] strings) {
+            this.entries = entries;
+            this.strings = strings;
+        }
+
+        PreferenceTable decode() {
+            PreferenceTable table = decoded;
+            if (table == null) {
+                table = decodeTable(entries, strings);
+                decoded = table;
             }
-            groupTag.put("preferences", itemPrefs);
+            return table;
+        }
+    }
 
-            prefsList.add(groupTag);
+    /**
+     * Immutable copy of everything that is persisted
+     */
+    private record Snapshot(long journalEpoch,
+                            int groupCount,
+                            Long2IntOpenHashMap wheelGroups,
+                            PreferenceTable[] groupPreferences,
+                            EncodedTable[] encodedPreferences,
+                            String[] groupProfiles,
+                            Map<String, PreferenceTable> profiles,
+                            boolean autoLinkOnPlace,
+                            @Nullable String defaultProfile,
+                            int linkSearchRadius) {
+    }
+
+    /**
+     * Per-save string table - each distinct string is written once and referenced by index
+     */
+    private static final class StringTable {
+        private final Object2IntOpenHashMap<String> indices = new Object2IntOpenHashMap<>();
+        private final ListTag tag = new ListTag();
+
+        StringTable() {
+            indices.defaultReturnValue(-1);
         }
-        tag.put("groupPreferences", prefsList);
 
-        // Note: activeControllerPositions is NOT saved - it's rebuilt on load
+        int indexOf(String value) {
+            int index = indices.getInt(value);
+            if (index < 0) {
+                index = tag.size();
+                indices.put(value, index);
+                tag.add(StringTag.valueOf(value));
+            }
+            return index;
+        }
 
-        return tag;
+        ListTag toTag() {
+            return tag;
+        }
     }
 
     // ==================== ACCESS ====================
 
+    private static final SavedData.Factory<CrushingWheelSelections> FACTORY =
+            new SavedData.Factory<>(CrushingWheelSelections::new, CrushingWheelSelections::load);
+
     public static CrushingWheelSelections get(Level level) {
         if (level instanceof ServerLevel serverLevel) {
-            return serverLevel.getDataStorage().computeIfAbsent(
-                    new SavedData.Factory<>(CrushingWheelSelections::new, CrushingWheelSelections::load),
-                    DATA_NAME
-            );
+            return get(serverLevel);
         }
         return null;
     }
 
+    /**
+     * Get the selections for a level.
+     * The handle is cached on the ServerLevel (see SelectionsHolder), so after the
+     * first call this is a single field read.
+     */
     public static CrushingWheelSelections get(ServerLevel serverLevel) {
-        return serverLevel.getDataStorage().computeIfAbsent(
-                new SavedData.Factory<>(CrushingWheelSelections::new, CrushingWheelSelections::load),
-                DATA_NAME
-        );
+        SelectionsHolder holder = (SelectionsHolder) serverLevel;
+        CrushingWheelSelections selections = holder.crushingwheelrecipeselector$getSelections();
+        if (selections == null) {
+            selections = serverLevel.getDataStorage().computeIfAbsent(FACTORY, DATA_NAME);
+            if (selections.journal == null && !selections.readOnly) {
+                selections.attachJournal(serverLevel);
+            }
+            holder.crushingwheelrecipeselector$setSelections(selections);
+        }
+        return selections;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package com.enormeboze.crushingwheelrecipeselector;
+
+import net.minecraft.server.level.ServerLevel;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+import net.neoforged.neoforge.event.tick.LevelTickEvent;
+
+/**
+ * Manages the per-level CrushingWheelSelections handle cached on ServerLevel,
+ * the lifetime of its change journal, stale link reconciliation, read view publication,
+ * and off-thread snapshot writes on shutdown.
+ */
+@EventBusSubscriber(modid = CrushingWheelRecipeSelector.MOD_ID)
+public class LevelDataHandler {
+
+    /**
+     * Populate the cached handle as soon as the level loads
+     */
+    @SubscribeEvent
+    public static void onLevelLoad(LevelEvent.Load event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            CrushingWheelSelections.get(serverLevel);
+        }
+    }
+
+    /**
+     * Close the change journal and drop the cached handle so the level doesn't keep stale data alive
+     */
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            SelectionsHolder holder = (SelectionsHolder) serverLevel;
+            CrushingWheelSelections selections = holder.crushingwheelrecipeselector$getSelections();
+            if (selections != null) {
+                selections.closeJournal();
+            }
+            holder.crushingwheelrecipeselector$setSelections(null);
+        }
+    }
+
+    /**
+     * Check a budgeted slice of links against the world, then publish the level's
+     * selections read view once per tick if anything changed
+     */
+    @SubscribeEvent
+    public static void onLevelTick(LevelTickEvent.Post event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            CrushingWheelSelections selections = ((SelectionsHolder) serverLevel).crushingwheelrecipeselector$getSelections();
+            if (selections != null) {
+                selections.reconcile(serverLevel);
+                selections.publishReadView();
+            }
+        }
+    }
+
+    /**
+     * The final save queues its snapshot writes - make sure they land before the server exits
+     */
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        CrushingWheelSelections.awaitPendingWrites();
+    }
+}
@@ -0,0 +1,387 @@
+package com.enormeboze.crushingwheelrecipeselector;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.BoolArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.coordinates.BlockPosArgument;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.RegisterCommandsEvent;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server commands under /crushingselector (operator only, except wrench).
+ *
+ * COMMANDS:
+ * - /crushingselector stats: Show recipe selection hot-path counters and latency
+ * - /crushingselector stats reset: Reset the counters
+ * - /crushingselector profile save <name> <wheel>: Save a wheel's preferences as a named profile
+ * - /crushingselector profile apply <name> <wheel>: Subscribe a wheel pair to a profile
+ * - /crushingselector profile detach <wheel>: Give a wheel pair its own copy of its profile
+ * - /crushingselector profile delete <name>: Delete a profile (subscribers keep its preferences)
+ * - /crushingselector profile list [name]: List profiles, or show one profile's preferences
+ * - /crushingselector area list <from> <to>: List linked wheel pairs in a box
+ * - /crushingselector area apply <profile> <from> <to>: Subscribe every wheel pair in a box to a profile
+ * - /crushingselector area clear <from> <to>: Clear the preferences of every wheel pair in a box
+ * - /crushingselector autolink <from> <to>: Link every valid pair of unlinked wheels in a box
+ * - /crushingselector settings: Show this world's settings
+ * - /crushingselector settings autolink <true|false>: Link wheel pairs automatically when placed
+ * - /crushingselector settings defaultprofile set <name>|clear: Profile that auto-linked pairs subscribe to
+ * - /crushingselector settings searchradius <radius>: How far the wrench highlights misaligned wheels
+ * - /crushingselector wrench <pair|area>: Switch your wrench between pair linking and area linking (any player)
+ */
+@EventBusSubscriber(modid = CrushingWheelRecipeSelector.MOD_ID)
+public class ModCommands {
+
+    @SubscribeEvent
+    public static void onRegisterCommands(RegisterCommandsEvent event) {
+        register(event.getDispatcher());
+    }
+
+    private static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("crushingselector")
+                .then(Commands.literal("stats")
+                        .requires(ModCommands::isOperator)
+                        .executes(context -> showStats(context.getSource()))
+                        .then(Commands.literal("reset")
+                                .executes(context -> resetStats(context.getSource()))))
+                .then(Commands.literal("profile")
+                        .requires(ModCommands::isOperator)
+                        .then(Commands.literal("save")
+                                .then(Commands.argument("name", StringArgumentType.word())
+                                        .then(Commands.argument("wheel", BlockPosArgument.blockPos())
+                                                .executes(context -> saveProfile(context.getSource(),
+                                                        StringArgumentType.getString(context, "name"),
+                                                        BlockPosArgument.getLoadedBlockPos(context, "wheel"))))))
+                        .then(Commands.literal("apply")
+                                .then(Commands.argument("name", StringArgumentType.word())
+                                        .then(Commands.argument("wheel", BlockPosArgument.blockPos())
+                                                .executes(context -> applyProfile(context.getSource(),
+                                                        StringArgumentType.getString(context, "name"),
+                                                        BlockPosArgument.getLoadedBlockPos(context, "wheel"))))))
+                        .then(Commands.literal("detach")
+                                .then(Commands.argument("wheel", BlockPosArgument.blockPos())
+                                        .executes(context -> detachProfile(context.getSource(),
+                                                BlockPosArgument.getLoadedBlockPos(context, "wheel")))))
+                        .then(Commands.literal("delete")
+                                .then(Commands.argument("name", StringArgumentType.word())
+                                        .executes(context -> deleteProfile(context.getSource(),
+                                                StringArgumentType.getString(context, "name")))))
+                        .then(Commands.literal("list")
+                                .executes(context -> listProfiles(context.getSource()))
+                                .then(Commands.argument("name", StringArgumentType.word())
+                                        .executes(context -> showProfile(context.getSource(),
+                                                StringArgumentType.getString(context, "name"))))))
+                .then(Commands.literal("area")
+                        .requires(ModCommands::isOperator)
+                        .then(Commands.literal("list")
+                                .then(Commands.argument("from", BlockPosArgument.blockPos())
+                                        .then(Commands.argument("to", BlockPosArgument.blockPos())
+                                                .executes(context -> listArea(context.getSource(),
+                                                        getBox(context))))))
+                        .then(Commands.literal("apply")
+                                .then(Commands.argument("profile", StringArgumentType.word())
+                                        .then(Commands.argument("from", BlockPosArgument.blockPos())
+                                                .then(Commands.argument("to", BlockPosArgument.blockPos())
+                                                        .executes(context -> applyArea(context.getSource(),
+                                                                StringArgumentType.getString(context, "profile"),
+                                                                getBox(context)))))))
+                        .then(Commands.literal("clear")
+                                .then(Commands.argument("from", BlockPosArgument.blockPos())
+                                        .then(Commands.argument("to", BlockPosArgument.blockPos())
+                                                .executes(context -> clearArea(context.getSource(),
+                                                        getBox(context)))))))
+                .then(Commands.literal("autolink")
+                        .requires(ModCommands::isOperator)
+                        .then(Commands.argument("from", BlockPosArgument.blockPos())
+                                .then(Commands.argument("to", BlockPosArgument.blockPos())
+                                        .executes(context -> autoLink(context.getSource(),
+                                                getBox(context))))))
+                .then(Commands.literal("settings")
+                        .requires(ModCommands::isOperator)
+                        .executes(context -> showSettings(context.getSource()))
+                        .then(Commands.literal("autolink")
+                                .then(Commands.argument("enabled", BoolArgumentType.bool())
+                                        .executes(context -> setAutoLink(context.getSource(),
+                                                BoolArgumentType.getBool(context, "enabled")))))
+                        .then(Commands.literal("defaultprofile")
+                                .then(Commands.literal("set")
+                                        .then(Commands.argument("name", StringArgumentType.word())
+                                                .executes(context -> setDefaultProfile(context.getSource(),
+                                                        StringArgumentType.getString(context, "name")))))
+                                .then(Commands.literal("clear")
+                                        .executes(context -> setDefaultProfile(context.getSource(), null))))
+                        .then(Commands.literal("searchradius")
+                                .then(Commands.argument("radius", IntegerArgumentType.integer(1, WheelLinkingHelper.MAX_SEARCH_RADIUS))
+                                        .executes(context -> setSearchRadius(context.getSource(),
+                                                IntegerArgumentType.getInteger(context, "radius"))))))
+                .then(Commands.literal("wrench")
+                        .then(Commands.literal("pair")
+                                .executes(context -> setWrenchMode(context.getSource(), false)))
+                        .then(Commands.literal("area")
+                                .executes(context -> setWrenchMode(context.getSource(), true)))));
+    }
+
+    private static boolean isOperator(CommandSourceStack source) {
+        return source.hasPermission(2);
+    }
+
+    private static BoundingBox getBox(CommandContext<CommandSourceStack> context) {
+        return BoundingBox.fromCorners(BlockPosArgument.getBlockPos(context, "from"),
+                BlockPosArgument.getBlockPos(context, "to"));
+    }
+
+    private static int showStats(CommandSourceStack source) {
+        long total = SelectionStats.getTotalCalls();
+        source.sendSuccess(() -> Component.literal("§6=== Crushing recipe selection stats ==="), false);
+        source.sendSuccess(() -> Component.literal("§7findRecipe calls: §f" + total), false);
+
+        for (SelectionStats.Exit exit : SelectionStats.Exit.values()) {
+            long count = SelectionStats.getExitCount(exit);
+            if (count == 0) {
+                continue;
+            }
+            String percent = String.format("%.1f", count * 100.0 / total);
+            source.sendSuccess(() -> Component.literal("§7  " + exit.label() + ": §f" + count + " §8(" + percent + "%)"), false);
+        }
+
+        long samples = SelectionStats.getLatencySamples();
+        if (samples == 0) {
+            source.sendSuccess(() -> Component.literal("§7Latency: §fno samples yet"), false);
+            return (int) Math.min(total, Integer.MAX_VALUE);
+        }
+
+        source.sendSuccess(() -> Component.literal("§7Latency (" + samples + " samples): §fmean "
+                + SelectionStats.getMeanLatencyNanos() + "ns, p50 <"
+                + SelectionStats.getLatencyPercentileNanos(50) + "ns, p99 <"
+                + SelectionStats.getLatencyPercentileNanos(99) + "ns"), false);
+
+        for (int i = 0; i < SelectionStats.LATENCY_BUCKETS; i++) {
+            long count = SelectionStats.getLatencyBucket(i);
+            if (count == 0) {
+                continue;
+            }
+            long upperBound = SelectionStats.bucketUpperBoundNanos(i);
+            source.sendSuccess(() -> Component.literal("§7  <" + upperBound + "ns: §f" + count), false);
+        }
+
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    private static int resetStats(CommandSourceStack source) {
+        SelectionStats.reset();
+        source.sendSuccess(() -> Component.literal("§aCrushing recipe selection stats reset"), true);
+        return 1;
+    }
+
+    // ==================== PROFILES ====================
+
+    private static int saveProfile(CommandSourceStack source, String name, BlockPos wheelPos) {
+        CrushingWheelSelections selections = CrushingWheelSelections.get(source.getLevel());
+        if (!selections.saveProfile(name, wheelPos)) {
+            source.sendFailure(Component.literal("No linked crushing wheel at " + wheelPos.toShortString()));
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal("§aSaved profile §f" + name + "§a from wheel at " + wheelPos.toShortString()), true);
+        return 1;
+    }
+
+    private static int applyProfile(CommandSourceStack source, String name, BlockPos wheelPos) {
+        CrushingWheelSelections selections = CrushingWheelSelections.get(source.getLevel());
+        if (!selections.getProfileNames().contains(name)) {
+            source.sendFailure(Component.literal("Unknown profile: " + name));
+            return 0;
+        }
+        if (!selections.applyProfile(name, wheelPos)) {
+            source.sendFailure(Component.literal("No linked crushing wheel at " + wheelPos.toShortString()));
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal("§aWheel at " + wheelPos.toShortString() + " now uses profile §f" + name), true);
+        return 1;
+    }
+
+    private static int detachProfile(CommandSourceStack source, BlockPos wheelPos) {
+        CrushingWheelSelections selections = CrushingWheelSelections.get(source.getLevel());
+        String name = selections.getWheelProfile(wheelPos);
+        if (name == null || !selections.detachProfile(wheelPos)) {
+            source.sendFailure(Component.literal("Wheel at " + wheelPos.toShortString() + " is not using a profile"));
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal("§aWheel at " + wheelPos.toShortString() + " detached from profile §f" + name), true);
+        return 1;
+    }
+
+    private static int deleteProfile(CommandSourceStack source, String name) {
+        CrushingWheelSelections selections = CrushingWheelSelections.get(source.getLevel());
+        int detached = selections.deleteProfile(name);
+        if (detached < 0) {
+            source.sendFailure(Component.literal("Unknown profile: " + name));
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal("§aDeleted profile §f" + name + "§a (" + detached + " wheel pair(s) detached)"), true);
+        return 1;
+    }
+
+    private static int listProfiles(CommandSourceStack source) {
+        CrushingWheelSelections selections = CrushingWheelSelections.get(source.getLevel());
+        if (selections.getProfileNames().isEmpty()) {
+            source.sendSuccess(() -> Component.literal("§7No profiles saved"), false);
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.literal("§6=== Crushing wheel profiles ==="), false);
+        for (String name : selections.getProfileNames()) {
+            Map<String, ResourceLocation> preferences = selections.getProfilePreferences(name);
+            int subscribers = selections.getProfileSubscriberCount(name);
+            source.sendSuccess(() -> Component.literal("§f" + name + " §7- " + preferences.size()
+                    + " preference(s), " + subscribers + " wheel pair(s)"), false);
+        }
+        return selections.getProfileNames().size();
+    }
+
+    private static int showProfile(CommandSourceStack source, String name) {
+        CrushingWheelSelections selections = CrushingWheelSelections.get(source.getLevel());
+        Map<String, ResourceLocation> preferences = selections.getProfilePreferences(name);
+        if (preferences == null) {
+            source.sendFailure(Component.literal("Unknown profile: " + name));
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.literal("§6=== Profile " + name + " ==="), false);
+        for (Map.Entry<String, ResourceLocation> preference : preferences.entrySet()) {
+            source.sendSuccess(() -> Component.literal("§7" + preference.getKey() + " §8-> §f" + preference.getValue()), false);
+        }
+        return preferences.size();
+    }
+
+    // ==================== AREA ====================
+
+    private static int listArea(CommandSourceStack source, BoundingBox box) {
+        CrushingWheelSelections selections = CrushingWheelSelections.get(source.getLevel());
+        IntSet groups = selections.getGroupsInBox(box);
+        if (groups.isEmpty()) {
+            source.sendSuccess(() -> Component.literal("§7No linked crushing wheels in this area"), false);
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.literal("§6=== " + groups.size() + " linked wheel pair(s) ==="), false);
+        IntIterator iterator = groups.iterator();
+        while (iterator.hasNext()) {
+            int groupId = iterator.nextInt();
+            List<BlockPos> wheels = selections.getGroupWheels(groupId);
+            StringBuilder positions = new StringBuilder();
+            for (BlockPos wheel : wheels) {
+                if (!positions.isEmpty()) {
+                    positions.append(" + ");
+                }
+                positions.append(wheel.toShortString());
+            }
+
+            String profile = selections.getGroupProfile(groupId);
+            String detail = profile != null
+                    ? "profile " + profile
+                    : selections.getGroupPreferenceCount(groupId) + " preference(s)";
+            source.sendSuccess(() -> Component.literal("§f" + positions + " §7- " + detail), false);
+        }
+        return groups.size();
+    }
+
+    private static int applyArea(CommandSourceStack source, String profile, BoundingBox box) {
+        CrushingWheelSelections selections = CrushingWheelSelections.get(source.getLevel());
+        int updated = selections.applyProfileInBox(profile, box);
+        if (updated < 0) {
+            source.sendFailure(Component.literal("Unknown profile: " + profile));
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal("§aApplied profile §f" + profile + "§a to " + updated + " wheel pair(s)"), true);
+        return updated;
+    }
+
+    private static int clearArea(CommandSourceStack source, BoundingBox box) {
+        CrushingWheelSelections selections = CrushingWheelSelections.get(source.getLevel());
+        int cleared = selections.clearPreferencesInBox(box);
+        source.sendSuccess(() -> Component.literal("§aCleared preferences of " + cleared + " wheel pair(s)"), true);
+        return cleared;
+    }
+
+    // ==================== AUTOLINK ====================
+
+    private static int autoLink(CommandSourceStack source, BoundingBox box) {
+        ServerLevel level = source.getLevel();
+        String reason = WheelLinkingHelper.getAreaLinkFailureReason(level, box);
+        if (reason != null) {
+            source.sendFailure(Component.literal(reason));
+            return 0;
+        }
+
+        CrushingWheelSelections selections = CrushingWheelSelections.get(level);
+        List<CrushingWheelSelections.WheelPair> pairs = WheelLinkingHelper.findUnlinkedPairs(level, box, selections);
+        int linked = selections.linkPairs(level, pairs);
+        source.sendSuccess(() -> Component.literal("§aLinked " + linked + " wheel pair(s)"), true);
+        return linked;
+    }
+
+    // ==================== SETTINGS ====================
+
+    private static int showSettings(CommandSourceStack source) {
+        CrushingWheelSelections selections = CrushingWheelSelections.get(source.getLevel());
+        String profile = selections.getDefaultProfile();
+        source.sendSuccess(() -> Component.literal("§6=== Crushing wheel selector settings ==="), false);
+        source.sendSuccess(() -> Component.literal("§7Auto-link on place: §f" + selections.isAutoLinkOnPlace()), false);
+        source.sendSuccess(() -> Component.literal("§7Default profile: §f" + (profile != null ? profile : "none")), false);
+        source.sendSuccess(() -> Component.literal("§7Wrench search radius: §f" + selections.getLinkSearchRadius()), false);
+        return 1;
+    }
+
+    private static int setAutoLink(CommandSourceStack source, boolean enabled) {
+        CrushingWheelSelections.get(source.getLevel()).setAutoLinkOnPlace(enabled);
+        source.sendSuccess(() -> Component.literal(enabled
+                ? "§aCrushing wheels will be linked automatically when placed"
+                : "§aAutomatic linking disabled"), true);
+        return 1;
+    }
+
+    private static int setDefaultProfile(CommandSourceStack source, @Nullable String name) {
+        if (!CrushingWheelSelections.get(source.getLevel()).setDefaultProfile(name)) {
+            source.sendFailure(Component.literal("Unknown profile: " + name));
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal(name != null
+                ? "§aAuto-linked wheel pairs will use profile " + name
+                : "§aDefault profile cleared"), true);
+        return 1;
+    }
+
+    private static int setSearchRadius(CommandSourceStack source, int radius) {
+        CrushingWheelSelections.get(source.getLevel()).setLinkSearchRadius(radius);
+        source.sendSuccess(() -> Component.literal("§aWrench search radius set to " + radius), true);
+        return radius;
+    }
+
+    // ==================== WRENCH ====================
+
+    private static int setWrenchMode(CommandSourceStack source, boolean areaMode) throws CommandSyntaxException {
+        ServerPlayer player = source.getPlayerOrException();
+        WrenchHandler.setAreaMode(player, areaMode);
+        source.sendSuccess(() -> Component.literal(areaMode
+                ? "§aWrench area mode: click two corner wheels to link every pair between them"
+                : "§aWrench pair mode: click two wheels to link them"), false);
+        return 1;
+    }
+}
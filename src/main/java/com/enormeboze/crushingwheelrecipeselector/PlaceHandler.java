@@ -0,0 +1,59 @@
+package com.enormeboze.crushingwheelrecipeselector;
+
+import com.simibubi.create.content.kinetics.crusher.CrushingWheelBlock;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.player.Player;
+import net.neoforged.bus.api.EventPriority;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.level.BlockEvent;
+
+/**
+ * Links a newly placed crushing wheel with its partner automatically (opt-in per world,
+ * see /crushingselector settings).
+ *
+ * PERFORMANCE OPTIMIZATION:
+ * Building a large crusher array no longer needs two wrench clicks (and their
+ * StartLinkingPacket round-trips) per pair - the pair is linked server-side as soon as
+ * its second wheel is placed. Only the 0-4 valid partner positions are checked.
+ */
+@EventBusSubscriber(modid = CrushingWheelRecipeSelector.MOD_ID)
+public class PlaceHandler {
+
+    // Lowest priority so wheels are only linked if no other handler cancelled the placement
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onBlockPlace(BlockEvent.EntityPlaceEvent event) {
+        if (!(event.getLevel() instanceof ServerLevel serverLevel)) return;
+        if (!(event.getPlacedBlock().getBlock() instanceof CrushingWheelBlock)) return;
+
+        CrushingWheelSelections selections = CrushingWheelSelections.get(serverLevel);
+        BlockPos wheelPos = event.getPos();
+        if (!selections.isAutoLinkOnPlace() || selections.isWheelLinked(wheelPos)) {
+            return;
+        }
+
+        BlockPos partner = WheelLinkingHelper.findFreePartner(serverLevel, wheelPos,
+                target -> !selections.isWheelLinked(target));
+        if (partner == null) {
+            return;
+        }
+
+        int groupId = selections.allocateGroup();
+        selections.linkWheel(wheelPos, groupId);
+        selections.linkWheel(partner, groupId);
+
+        String profile = selections.getDefaultProfile();
+        if (profile != null) {
+            selections.applyProfile(profile, wheelPos);
+        }
+
+        if (event.getEntity() instanceof Player player) {
+            player.displayClientMessage(Component.literal(profile != null
+                    ? "§aCrushing wheels linked automatically (profile " + profile + ")"
+                    : "§aCrushing wheels linked automatically"), true);
+        }
+        CrushingWheelRecipeSelector.LOGGER.debug("Auto-linked wheels at {} and {} with group {}", wheelPos, partner, groupId);
+    }
+}
@@ -0,0 +1,167 @@
+package com.enormeboze.crushingwheelrecipeselector;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Immutable, deduplicated table of recipe preferences (input Item -> preferred recipe ID).
+ *
+ * Groups and named profiles reference tables instead of owning their own maps.
+ * Every table is interned, so groups with identical selections share one instance,
+ * and edits are copy-on-write: with()/without() return a new (interned) table and
+ * leave every other group that referenced the old one untouched.
+ *
+ * Preferences for items that aren't registered right now (e.g. their mod was removed)
+ * are kept by item ID in a side map and written back unchanged on save, so they come
+ * back once the item is registered again. They never match a crushing input.
+ */
+public final class PreferenceTable {
+
+    private static final Interner<PreferenceTable> INTERNER = Interners.newWeakInterner();
+
+    public static final PreferenceTable EMPTY = INTERNER.intern(new PreferenceTable(Collections.emptyMap(), Collections.emptyMap()));
+
+    private final Map<Item, ResourceLocation> preferences;
+    // Item ID -> preferred recipe ID, for items that aren't registered
+    private final Map<String, ResourceLocation> unresolved;
+    private final int hash;
+
+    private PreferenceTable(Map<Item, ResourceLocation> preferences, Map<String, ResourceLocation> unresolved) {
+        this.preferences = preferences;
+        this.unresolved = unresolved;
+        this.hash = hashOf(preferences) * 31 + unresolved.hashCode();
+    }
+
+    // IdentityHashMap's own hashCode()/equals() also compare the recipe IDs by reference,
+    // so tables built from separately parsed (equal) IDs would never be shared.
+    // Items are compared by identity, recipe IDs by value.
+    private static int hashOf(Map<Item, ResourceLocation> preferences) {
+        int hash = 0;
+        for (Map.Entry<Item, ResourceLocation> entry : preferences.entrySet()) {
+            hash += System.identityHashCode(entry.getKey()) ^ entry.getValue().hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Create (or reuse) the table holding exactly these preferences
+     */
+    public static PreferenceTable of(Map<Item, ResourceLocation> preferences) {
+        return of(preferences, Collections.emptyMap());
+    }
+
+    /**
+     * Create (or reuse) the table holding exactly these preferences, plus preferences
+     * for unregistered items keyed by item ID
+     */
+    public static PreferenceTable of(Map<Item, ResourceLocation> preferences, Map<String, ResourceLocation> unresolved) {
+        if (preferences.isEmpty() && unresolved.isEmpty()) {
+            return EMPTY;
+        }
+        return INTERNER.intern(new PreferenceTable(Collections.unmodifiableMap(new IdentityHashMap<>(preferences)),
+                unresolved.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(unresolved))));
+    }
+
+    @Nullable
+    public ResourceLocation get(Item inputItem) {
+        return preferences.get(inputItem);
+    }
+
+    /**
+     * Copy-on-write: this table with one preference added or replaced
+     */
+    public PreferenceTable with(Item inputItem, ResourceLocation recipeId) {
+        if (recipeId.equals(preferences.get(inputItem))) {
+            return this;
+        }
+        Map<Item, ResourceLocation> copy = new IdentityHashMap<>(preferences);
+        copy.put(inputItem, recipeId);
+        return of(copy, unresolved);
+    }
+
+    /**
+     * Copy-on-write: this table with one preference removed
+     */
+    public PreferenceTable without(Item inputItem) {
+        if (!preferences.containsKey(inputItem)) {
+            return this;
+        }
+        Map<Item, ResourceLocation> copy = new IdentityHashMap<>(preferences);
+        copy.remove(inputItem);
+        return of(copy, unresolved);
+    }
+
+    /**
+     * Copy-on-write: this table with one preference for an unregistered item added or replaced
+     */
+    public PreferenceTable withUnresolved(String inputItemId, ResourceLocation recipeId) {
+        if (recipeId.equals(unresolved.get(inputItemId))) {
+            return this;
+        }
+        Map<String, ResourceLocation> copy = new HashMap<>(unresolved);
+        copy.put(inputItemId, recipeId);
+        return of(preferences, copy);
+    }
+
+    /**
+     * Copy-on-write: this table with one preference for an unregistered item removed
+     */
+    public PreferenceTable withoutUnresolved(String inputItemId) {
+        if (!unresolved.containsKey(inputItemId)) {
+            return this;
+        }
+        Map<String, ResourceLocation> copy = new HashMap<>(unresolved);
+        copy.remove(inputItemId);
+        return of(preferences, copy);
+    }
+
+    public boolean isEmpty() {
+        return preferences.isEmpty() && unresolved.isEmpty();
+    }
+
+    /**
+     * Number of preferences, including those for unregistered items
+     */
+    public int size() {
+        return preferences.size() + unresolved.size();
+    }
+
+    /**
+     * Unmodifiable view of the preferences
+     */
+    public Map<Item, ResourceLocation> asMap() {
+        return preferences;
+    }
+
+    /**
+     * Unmodifiable view of the preferences for unregistered items, keyed by item ID
+     */
+    public Map<String, ResourceLocation> getUnresolved() {
+        return unresolved;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PreferenceTable other)) return false;
+        if (hash != other.hash || preferences.size() != other.preferences.size()
+                || !unresolved.equals(other.unresolved)) return false;
+        for (Map.Entry<Item, ResourceLocation> entry : preferences.entrySet()) {
+            if (!entry.getValue().equals(other.preferences.get(entry.getKey()))) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
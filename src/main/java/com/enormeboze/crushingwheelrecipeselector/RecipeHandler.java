@@ -1,6 +1,7 @@
 package com.enormeboze.crushingwheelrecipeselector;
 
 import com.simibubi.create.content.kinetics.crusher.CrushingRecipe;
+import com.simibubi.create.content.processing.recipe.ProcessingOutput;
 import net.minecraft.client.Minecraft;
 import net.minecraft.core.RegistryAccess;
 import net.minecraft.resources.ResourceLocation;
@@ -200,29 +201,35 @@ public class RecipeHandler {
      * Create a signature string representing all outputs of a recipe
      * Used to detect recipes with identical outputs
      */
-    private static String getOutputSignature(RecipeHolder<CrushingRecipe> holder, RegistryAccess registryAccess) {
-        List<String> outputParts = new ArrayList<>();
-
+    public static String getOutputSignature(RecipeHolder<CrushingRecipe> holder, RegistryAccess registryAccess) {
         try {
             CrushingRecipe recipe = holder.value();
+            return getOutputSignature(recipe.getResultItem(registryAccess), recipe.getRollableResults());
+        } catch (Exception e) {
+            CrushingWheelRecipeSelector.LOGGER.error("Error getting output signature", e);
+            return "";
+        }
+    }
 
-            // Get the main result
-            ItemStack result = recipe.getResultItem(registryAccess);
-            if (!result.isEmpty()) {
-                outputParts.add(getItemId(result) + ":" + result.getCount());
-            }
+    /**
+     * Signature of a main result plus rolled results.
+     * Package-private so the JMH benchmarks can measure it without building Create recipes.
+     */
+    static String getOutputSignature(ItemStack result, List<ProcessingOutput> rollableResults) {
+        List<String> outputParts = new ArrayList<>();
 
-            // Get secondary/rolled results
-            var rollableResults = recipe.getRollableResults();
-            for (var rollable : rollableResults) {
-                ItemStack stack = rollable.getStack();
-                if (!stack.isEmpty()) {
-                    float chance = rollable.getChance();
-                    outputParts.add(getItemId(stack) + ":" + stack.getCount() + ":" + (int)(chance * 1000));
-                }
+        // Get the main result
+        if (!result.isEmpty()) {
+            outputParts.add(getItemId(result) + ":" + result.getCount());
+        }
+
+        // Get secondary/rolled results
+        for (ProcessingOutput rollable : rollableResults) {
+            ItemStack stack = rollable.getStack();
+            if (!stack.isEmpty()) {
+                float chance = rollable.getChance();
+                outputParts.add(getItemId(stack) + ":" + stack.getCount() + ":" + (int)(chance * 1000));
             }
-        } catch (Exception e) {
-            CrushingWheelRecipeSelector.LOGGER.error("Error getting output signature", e);
         }
 
         // Sort to ensure consistent ordering
@@ -0,0 +1,168 @@
+package com.enormeboze.crushingwheelrecipeselector;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hot-path counters for the recipe selection mixin.
+ *
+ * Every findRecipe call is counted by how it exits, using LongAdders so concurrent
+ * crusher ticks never contend on a single counter. A sampled subset of calls also
+ * records its latency - one sample per call, from the HEAD injector to the call's
+ * exit (HEAD short-circuit or RETURN) - into a power-of-two latency histogram.
+ *
+ * Exposed through /crushingselector stats (and reset).
+ */
+public class SelectionStats {
+
+    /**
+     * How a findRecipe call left the selection mixin
+     */
+    public enum Exit {
+        NOT_SERVER_LEVEL("not server level"),
+        UNCONTESTED("uncontested input"),
+        INACTIVE_CONTROLLER("inactive controller"),
+        EMPTY_RECIPE("empty recipe"),
+        NO_PREFERENCE("no preference"),
+        ALREADY_PREFERRED("already preferred"),
+        OVERRIDE_APPLIED("override applied"),
+        PREFERRED_MISSING("preferred recipe missing"),
+        HEAD_SHORTCUT("memoized (HEAD short-circuit)"),
+        ERROR("error");
+
+        private final String label;
+
+        Exit(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    // Sample 1 in SAMPLE_INTERVAL calls for latency (must be a power of two)
+    private static final int SAMPLE_INTERVAL = 64;
+
+    // Bucket i holds samples in [32 << i, 64 << i) ns - bucket 0 is everything below 64ns
+    public static final int LATENCY_BUCKETS = 16;
+
+    private static final Exit[] EXITS = Exit.values();
+    private static final LongAdder[] exitCounts = new LongAdder[EXITS.length];
+    private static final LongAdder[] latencyBuckets = new LongAdder[LATENCY_BUCKETS];
+    private static final LongAdder latencySamples = new LongAdder();
+    private static final LongAdder latencyTotalNanos = new LongAdder();
+
+    // Sampling counter - races between threads only skew which calls get sampled, which is fine
+    private static int sampleCounter = 0;
+
+    static {
+        for (int i = 0; i < exitCounts.length; i++) {
+            exitCounts[i] = new LongAdder();
+        }
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Start a latency sample. Returns a nanoTime start stamp for sampled calls, 0 otherwise.
+     */
+    public static long sampleStart() {
+        if ((++sampleCounter & (SAMPLE_INTERVAL - 1)) != 0) {
+            return 0L;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Count an exit and, if this call was sampled, record its latency
+     */
+    public static void record(Exit exit, long sampleStart) {
+        exitCounts[exit.ordinal()].increment();
+        recordLatency(sampleStart);
+    }
+
+    private static void recordLatency(long sampleStart) {
+        if (sampleStart == 0L) {
+            return;
+        }
+        long nanos = System.nanoTime() - sampleStart;
+        latencyBuckets[bucketFor(nanos)].increment();
+        latencySamples.increment();
+        latencyTotalNanos.add(nanos);
+    }
+
+    private static int bucketFor(long nanos) {
+        int bucket = 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1L)) - 5;
+        return Math.max(0, Math.min(LATENCY_BUCKETS - 1, bucket));
+    }
+
+    /**
+     * Upper bound (exclusive) in nanoseconds of a latency bucket
+     */
+    public static long bucketUpperBoundNanos(int bucket) {
+        return 64L << bucket;
+    }
+
+    public static long getExitCount(Exit exit) {
+        return exitCounts[exit.ordinal()].sum();
+    }
+
+    public static long getTotalCalls() {
+        long total = 0;
+        for (LongAdder count : exitCounts) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    public static long getLatencyBucket(int bucket) {
+        return latencyBuckets[bucket].sum();
+    }
+
+    public static long getLatencySamples() {
+        return latencySamples.sum();
+    }
+
+    /**
+     * Mean sampled latency in nanoseconds (0 if nothing sampled yet)
+     */
+    public static long getMeanLatencyNanos() {
+        long samples = latencySamples.sum();
+        return samples == 0 ? 0 : latencyTotalNanos.sum() / samples;
+    }
+
+    /**
+     * Estimate a latency percentile (0-100) as the upper bound of the bucket it falls in
+     */
+    public static long getLatencyPercentileNanos(double percentile) {
+        long samples = latencySamples.sum();
+        if (samples == 0) {
+            return 0;
+        }
+
+        long threshold = (long) Math.ceil(samples * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            seen += latencyBuckets[i].sum();
+            if (seen >= threshold) {
+                return bucketUpperBoundNanos(i);
+            }
+        }
+        return bucketUpperBoundNanos(LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * Reset all counters and the histogram
+     */
+    public static void reset() {
+        for (LongAdder count : exitCounts) {
+            count.reset();
+        }
+        for (LongAdder bucket : latencyBuckets) {
+            bucket.reset();
+        }
+        latencySamples.reset();
+        latencyTotalNanos.reset();
+    }
+}
@@ -0,0 +1,13 @@
+package com.enormeboze.crushingwheelrecipeselector;
+
+/**
+ * Implemented on ServerLevel via ServerLevelMixin.
+ * Holds the level's CrushingWheelSelections so lookups are a field read
+ * instead of a DimensionDataStorage lookup.
+ */
+public interface SelectionsHolder {
+
+    CrushingWheelSelections crushingwheelrecipeselector$getSelections();
+
+    void crushingwheelrecipeselector$setSelections(CrushingWheelSelections selections);
+}
@@ -0,0 +1,317 @@
+package com.enormeboze.crushingwheelrecipeselector;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceLocation;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only journal of selection changes, written next to the selections SavedData.
+ *
+ * PERFORMANCE OPTIMIZATION:
+ * Link, unlink, select, clear and profile subscription used to mark the whole SavedData
+ * dirty, so every autosave rewrote and recompressed the full snapshot. These operations
+ * are now appended here as small binary records instead; the snapshot is only rewritten
+ * once enough operations have piled up (compaction), or for changes the journal can't
+ * express (profile edits, area operations).
+ *
+ * FILE LAYOUT:
+ * - Header: magic, version, epoch
+ * - Records: one op byte followed by its payload
+ *
+ * The epoch ties the journal to the snapshot it extends. Every snapshot bumps the epoch
+ * and rotates the journal (the previous one is kept as ".old"); on load, only journals
+ * that extend the loaded snapshot are replayed, and a truncated final record (crash
+ * mid-write) is ignored. Replayed changes are folded into a new snapshot right away.
+ *
+ * A BARRIER record marks a change that only the next snapshot will contain. Replay stops
+ * there, so the replayed state is always a consistent prefix of what happened.
+ */
+public class SelectionsJournal {
+
+    private static final int MAGIC = 0x43575351;
+    private static final byte VERSION = 2;
+
+    // Magic (int) + version (byte) + epoch (long)
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+
+    private static final byte OP_LINK = 1;
+    private static final byte OP_UNLINK = 2;
+    private static final byte OP_SELECT = 3;
+    private static final byte OP_CLEAR = 4;
+    private static final byte OP_BARRIER = 5;
+    private static final byte OP_SUBSCRIBE = 6;
+
+    private final Path path;
+    private DataOutputStream out;
+    private int opCount;
+
+    private SelectionsJournal(Path path, DataOutputStream out, int opCount) {
+        this.path = path;
+        this.out = out;
+        this.opCount = opCount;
+    }
+
+    /**
+     * Replay the journals that extend the snapshot with the given epoch.
+     *
+     * Normally that is the current journal (same epoch). If the server stopped between
+     * taking a snapshot and its write landing, the ".old" journal carries the snapshot's
+     * epoch and the current one the next epoch - both are replayed, in order.
+     *
+     * @return number of operations replayed
+     */
+    public static int replay(Path path, long epoch, CrushingWheelSelections selections) {
+        Path oldPath = getOldPath(path);
+        int[] replayed = new int[1];
+
+        ReplayResult old = replayFile(oldPath, epoch, selections, replayed);
+        if (old == ReplayResult.COMPLETE) {
+            replayFile(path, epoch + 1, selections, replayed);
+        } else if (old == ReplayResult.EPOCH_MISMATCH) {
+            replayFile(path, epoch, selections, replayed);
+        }
+
+        if (replayed[0] > 0) {
+            CrushingWheelRecipeSelector.LOGGER.info("Replayed {} selection change(s) from journal", replayed[0]);
+        }
+        return replayed[0];
+    }
+
+    private enum ReplayResult {
+        EPOCH_MISMATCH,
+        COMPLETE,
+        STOPPED
+    }
+
+    private static ReplayResult replayFile(Path path, long epoch, CrushingWheelSelections selections, int[] replayed) {
+        if (!Files.exists(path)) {
+            return ReplayResult.EPOCH_MISMATCH;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                return ReplayResult.EPOCH_MISMATCH;
+            }
+            if (in.readByte() != VERSION || in.readLong() != epoch) {
+                return ReplayResult.EPOCH_MISMATCH;
+            }
+
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return ReplayResult.COMPLETE;
+                }
+                if (op == OP_BARRIER) {
+                    CrushingWheelRecipeSelector.LOGGER.warn("Selections journal replay stopped at a barrier - changes after it were not saved");
+                    return ReplayResult.STOPPED;
+                }
+                if (!replay(op, in, selections)) {
+                    CrushingWheelRecipeSelector.LOGGER.warn("Unknown selections journal op {} - stopping replay", op);
+                    return ReplayResult.STOPPED;
+                }
+                replayed[0]++;
+            }
+        } catch (EOFException e) {
+            // Truncated final record (crash mid-write) - everything before it was replayed
+            return ReplayResult.STOPPED;
+        } catch (IOException e) {
+            CrushingWheelRecipeSelector.LOGGER.error("Could not read selections journal {}", path, e);
+            return ReplayResult.STOPPED;
+        }
+    }
+
+    /**
+     * Start an empty journal extending the snapshot with the given epoch
+     *
+     * @return the open journal, or null if it could not be opened (selections then fall
+     * back to full snapshots)
+     */
+    @Nullable
+    public static SelectionsJournal open(Path path, long epoch) {
+        try {
+            Files.deleteIfExists(getOldPath(path));
+            return new SelectionsJournal(path, create(path, epoch), 0);
+        } catch (IOException e) {
+            CrushingWheelRecipeSelector.LOGGER.error("Could not open selections journal {} - falling back to full saves", path, e);
+            return null;
+        }
+    }
+
+    private static Path getOldPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".old");
+    }
+
+    private static boolean replay(byte op, DataInputStream in, CrushingWheelSelections selections) throws IOException {
+        switch (op) {
+            case OP_LINK -> {
+                long pos = in.readLong();
+                selections.linkWheel(BlockPos.of(pos), in.readInt());
+            }
+            case OP_UNLINK -> selections.unlinkWheel(BlockPos.of(in.readLong()));
+            case OP_SELECT -> {
+                long pos = in.readLong();
+                String inputItemId = in.readUTF();
+                ResourceLocation recipeId = ResourceLocation.parse(in.readUTF());
+                selections.setPreferredRecipe(BlockPos.of(pos), inputItemId, recipeId);
+            }
+            case OP_CLEAR -> {
+                long pos = in.readLong();
+                selections.clearPreferredRecipe(BlockPos.of(pos), in.readUTF());
+            }
+            case OP_SUBSCRIBE -> {
+                long pos = in.readLong();
+                selections.applyProfile(in.readUTF(), BlockPos.of(pos));
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static DataOutputStream create(Path path, long epoch) throws IOException {
+        Files.createDirectories(path.getParent());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(epoch);
+        out.flush();
+        return out;
+    }
+
+    /**
+     * Number of operations since the last snapshot
+     */
+    public int getOpCount() {
+        return opCount;
+    }
+
+    public boolean appendLink(long pos, int groupId) {
+        try {
+            out.writeByte(OP_LINK);
+            out.writeLong(pos);
+            out.writeInt(groupId);
+            return commit();
+        } catch (IOException e) {
+            return fail(e);
+        }
+    }
+
+    public boolean appendUnlink(long pos) {
+        try {
+            out.writeByte(OP_UNLINK);
+            out.writeLong(pos);
+            return commit();
+        } catch (IOException e) {
+            return fail(e);
+        }
+    }
+
+    public boolean appendSelect(long wheelPos, String inputItemId, ResourceLocation recipeId) {
+        try {
+            out.writeByte(OP_SELECT);
+            out.writeLong(wheelPos);
+            out.writeUTF(inputItemId);
+            out.writeUTF(recipeId.toString());
+            return commit();
+        } catch (IOException e) {
+            return fail(e);
+        }
+    }
+
+    public boolean appendClear(long wheelPos, String inputItemId) {
+        try {
+            out.writeByte(OP_CLEAR);
+            out.writeLong(wheelPos);
+            out.writeUTF(inputItemId);
+            return commit();
+        } catch (IOException e) {
+            return fail(e);
+        }
+    }
+
+    public boolean appendSubscribe(long wheelPos, String profile) {
+        try {
+            out.writeByte(OP_SUBSCRIBE);
+            out.writeLong(wheelPos);
+            out.writeUTF(profile);
+            return commit();
+        } catch (IOException e) {
+            return fail(e);
+        }
+    }
+
+    /**
+     * Mark a change the journal can't express - replay stops here until the next snapshot
+     */
+    public void appendBarrier() {
+        try {
+            out.writeByte(OP_BARRIER);
+            commit();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private boolean commit() throws IOException {
+        out.flush();
+        opCount++;
+        return true;
+    }
+
+    private boolean fail(IOException e) {
+        CrushingWheelRecipeSelector.LOGGER.error("Could not write selections journal {}", path, e);
+        return false;
+    }
+
+    /**
+     * Start a new journal for a freshly taken snapshot. The previous journal is kept as
+     * ".old" until the next rotation, in case the snapshot write doesn't land.
+     *
+     * @param appendToOld the last snapshot write failed - ".old" still extends the snapshot
+     *                    on disk, so the current records are appended to it rather than replacing it
+     */
+    public void rotate(long epoch, boolean appendToOld) {
+        try {
+            out.close();
+            Path oldPath = getOldPath(path);
+            if (appendToOld && Files.exists(oldPath) && Files.exists(path)) {
+                try (InputStream in = Files.newInputStream(path);
+                     OutputStream oldOut = Files.newOutputStream(oldPath, StandardOpenOption.APPEND)) {
+                    in.skipNBytes(HEADER_SIZE);
+                    in.transferTo(oldOut);
+                }
+            } else if (Files.exists(path)) {
+                Files.move(path, oldPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            out = create(path, epoch);
+            opCount = 0;
+        } catch (IOException e) {
+            CrushingWheelRecipeSelector.LOGGER.error("Could not rotate selections journal {}", path, e);
+        }
+    }
+
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            CrushingWheelRecipeSelector.LOGGER.error("Could not close selections journal {}", path, e);
+        }
+    }
+}
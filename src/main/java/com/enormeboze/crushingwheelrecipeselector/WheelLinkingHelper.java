@@ -3,13 +3,21 @@ package com.enormeboze.crushingwheelrecipeselector;
 import com.simibubi.create.content.kinetics.crusher.CrushingWheelBlock;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.properties.BlockStateProperties;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Helper class for wheel linking operations.
@@ -21,15 +29,23 @@ import java.util.Set;
  * 2. Is exactly 2 blocks away PERPENDICULAR to that axis
  *
  * This means we only check 4 positions max (the 4 perpendicular directions).
+ *
+ * Area scans (nearby invalid wheels, area linking) go through forEachWheelInBox, which
+ * consults each chunk section's block-state palette first and skips sections that
+ * cannot contain a crushing wheel - most sections are never scanned block by block.
  */
 public class WheelLinkingHelper {
 
     // Distance between paired wheels (1 block gap = 2 blocks apart)
     public static final int LINK_DISTANCE = 2;
 
-    // Small search radius for finding nearby invalid wheels (for red highlight)
-    // Keep this small for performance - just enough to show nearby misaligned wheels
-    private static final int INVALID_SEARCH_RADIUS = 3;
+    // Search radius for finding nearby invalid wheels (for red highlight) - per world,
+    // see CrushingWheelSelections.getLinkSearchRadius. The palette scan keeps larger radii cheap
+    public static final int DEFAULT_SEARCH_RADIUS = 3;
+    public static final int MAX_SEARCH_RADIUS = 16;
+
+    // Largest box (in blocks) that area linking will scan
+    public static final long MAX_AREA_LINK_VOLUME = 64L * 64L * 64L;
 
     /**
      * Find valid link targets for a wheel.
@@ -79,9 +95,10 @@ public class WheelLinkingHelper {
      * @param level The world
      * @param wheelPos The wheel being linked from
      * @param validTargets Already-found valid targets (to exclude from invalid set)
+     * @param radius Search radius around the wheel
      * @return Set of invalid target positions
      */
-    public static Set<BlockPos> findInvalidLinkTargets(Level level, BlockPos wheelPos, Set<BlockPos> validTargets) {
+    public static Set<BlockPos> findInvalidLinkTargets(Level level, BlockPos wheelPos, Set<BlockPos> validTargets, int radius) {
         Set<BlockPos> invalidTargets = new HashSet<>();
 
         BlockState state = level.getBlockState(wheelPos);
@@ -89,34 +106,155 @@ public class WheelLinkingHelper {
             return invalidTargets;
         }
 
-        // Search in a small area for other crushing wheels
-        BlockPos.MutableBlockPos checkPos = new BlockPos.MutableBlockPos();
+        // Search the area around the wheel for other crushing wheels
+        BoundingBox area = new BoundingBox(wheelPos).inflatedBy(radius);
+        forEachWheelInBox(level, area, foundPos -> {
+            // Skip the wheel itself and valid targets - the rest can't be linked
+            if (!foundPos.equals(wheelPos) && !validTargets.contains(foundPos)) {
+                invalidTargets.add(foundPos);
+            }
+        });
 
-        for (int x = -INVALID_SEARCH_RADIUS; x <= INVALID_SEARCH_RADIUS; x++) {
-            for (int y = -INVALID_SEARCH_RADIUS; y <= INVALID_SEARCH_RADIUS; y++) {
-                for (int z = -INVALID_SEARCH_RADIUS; z <= INVALID_SEARCH_RADIUS; z++) {
-                    // Skip the wheel itself
-                    if (x == 0 && y == 0 && z == 0) continue;
+        return invalidTargets;
+    }
 
-                    checkPos.set(wheelPos.getX() + x, wheelPos.getY() + y, wheelPos.getZ() + z);
-                    BlockState checkState = level.getBlockState(checkPos);
+    /**
+     * Get the reason why the wheels in a box cannot be area-linked (too large or not loaded).
+     * Returns null if the box can be scanned.
+     */
+    @Nullable
+    public static String getAreaLinkFailureReason(Level level, BoundingBox box) {
+        long volume = (long) box.getXSpan() * box.getYSpan() * box.getZSpan();
+        if (volume > MAX_AREA_LINK_VOLUME) {
+            return "Area too large (" + volume + " blocks, max " + MAX_AREA_LINK_VOLUME + ")";
+        }
+        if (!isAreaLoaded(level, box)) {
+            return "Area is not loaded";
+        }
+        return null;
+    }
 
-                    if (checkState.getBlock() instanceof CrushingWheelBlock) {
-                        BlockPos foundPos = checkPos.immutable();
+    /**
+     * Check that every chunk a box overlaps is loaded
+     */
+    private static boolean isAreaLoaded(Level level, BoundingBox box) {
+        for (int chunkX = SectionPos.blockToSectionCoord(box.minX()); chunkX <= SectionPos.blockToSectionCoord(box.maxX()); chunkX++) {
+            for (int chunkZ = SectionPos.blockToSectionCoord(box.minZ()); chunkZ <= SectionPos.blockToSectionCoord(box.maxZ()); chunkZ++) {
+                if (!level.getChunkSource().hasChunk(chunkX, chunkZ)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
 
-                        // Skip if it's already a valid target
-                        if (validTargets.contains(foundPos)) {
-                            continue;
-                        }
+    /**
+     * Find every crushing wheel inside a box.
+     * The caller must check the box with getAreaLinkFailureReason first.
+     */
+    public static List<BlockPos> findWheelsInBox(Level level, BoundingBox box) {
+        List<BlockPos> wheels = new ArrayList<>();
+        forEachWheelInBox(level, box, wheels::add);
+        return wheels;
+    }
 
-                        // This is a nearby wheel that can't be linked - add to invalid set
-                        invalidTargets.add(foundPos);
+    /**
+     * Visit every crushing wheel inside a box, section by section.
+     *
+     * PERFORMANCE OPTIMIZATION:
+     * Each chunk section's palette is checked first - sections that are empty or whose
+     * palette holds no crushing wheel state are skipped without reading a single block.
+     * Chunks that aren't loaded are skipped (never loaded).
+     */
+    public static void forEachWheelInBox(Level level, BoundingBox box, Consumer<BlockPos> action) {
+        int minY = Math.max(box.minY(), level.getMinBuildHeight());
+        int maxY = Math.min(box.maxY(), level.getMaxBuildHeight() - 1);
+        if (minY > maxY) {
+            return;
+        }
+
+        for (int chunkX = SectionPos.blockToSectionCoord(box.minX()); chunkX <= SectionPos.blockToSectionCoord(box.maxX()); chunkX++) {
+            for (int chunkZ = SectionPos.blockToSectionCoord(box.minZ()); chunkZ <= SectionPos.blockToSectionCoord(box.maxZ()); chunkZ++) {
+                LevelChunk chunk = level.getChunkSource().getChunkNow(chunkX, chunkZ);
+                if (chunk == null) {
+                    continue;
+                }
+
+                int minX = Math.max(box.minX(), SectionPos.sectionToBlockCoord(chunkX));
+                int maxX = Math.min(box.maxX(), SectionPos.sectionToBlockCoord(chunkX, 15));
+                int minZ = Math.max(box.minZ(), SectionPos.sectionToBlockCoord(chunkZ));
+                int maxZ = Math.min(box.maxZ(), SectionPos.sectionToBlockCoord(chunkZ, 15));
+
+                for (int sectionY = SectionPos.blockToSectionCoord(minY); sectionY <= SectionPos.blockToSectionCoord(maxY); sectionY++) {
+                    LevelChunkSection section = chunk.getSection(chunk.getSectionIndexFromSectionY(sectionY));
+                    if (section.hasOnlyAir() || !section.maybeHas(WheelLinkingHelper::isCrushingWheel)) {
+                        continue;
+                    }
+
+                    int sectionMinY = Math.max(minY, SectionPos.sectionToBlockCoord(sectionY));
+                    int sectionMaxY = Math.min(maxY, SectionPos.sectionToBlockCoord(sectionY, 15));
+                    for (int y = sectionMinY; y <= sectionMaxY; y++) {
+                        for (int z = minZ; z <= maxZ; z++) {
+                            for (int x = minX; x <= maxX; x++) {
+                                if (isCrushingWheel(section.getBlockState(x & 15, y & 15, z & 15))) {
+                                    action.accept(new BlockPos(x, y, z));
+                                }
+                            }
+                        }
                     }
                 }
             }
         }
+    }
 
-        return invalidTargets;
+    private static boolean isCrushingWheel(BlockState state) {
+        return state.getBlock() instanceof CrushingWheelBlock;
+    }
+
+    /**
+     * Pair up the unlinked crushing wheels inside a box.
+     * Each wheel is paired through findFreePartner; partners must be inside the box.
+     * Wheels that are already linked are left alone.
+     */
+    public static List<CrushingWheelSelections.WheelPair> findUnlinkedPairs(Level level, BoundingBox box,
+                                                                           CrushingWheelSelections selections) {
+        List<CrushingWheelSelections.WheelPair> pairs = new ArrayList<>();
+        Set<BlockPos> claimed = new HashSet<>();
+
+        for (BlockPos wheel : findWheelsInBox(level, box)) {
+            if (claimed.contains(wheel) || selections.isWheelLinked(wheel)) {
+                continue;
+            }
+
+            BlockPos partner = findFreePartner(level, wheel,
+                    target -> box.isInside(target) && !claimed.contains(target) && !selections.isWheelLinked(target));
+            if (partner != null) {
+                claimed.add(wheel);
+                claimed.add(partner);
+                pairs.add(new CrushingWheelSelections.WheelPair(wheel, partner));
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Find a partner for a wheel among its valid link targets: its findPairedWheel partner
+     * if that one is free, otherwise the first other free target.
+     *
+     * @return the partner, or null if no valid target is free
+     */
+    @Nullable
+    public static BlockPos findFreePartner(Level level, BlockPos wheelPos, Predicate<BlockPos> isFree) {
+        BlockPos partner = CrushingWheelPairHelper.findPairedWheel(level, wheelPos);
+        if (partner != null && isFree.test(partner)) {
+            return partner;
+        }
+        for (BlockPos target : findValidLinkTargets(level, wheelPos)) {
+            if (isFree.test(target)) {
+                return target;
+            }
+        }
+        return null;
     }
 
     /**
@@ -4,6 +4,7 @@ import com.enormeboze.crushingwheelrecipeselector.network.SyncSelectionsPacket;
 import com.enormeboze.crushingwheelrecipeselector.network.StartLinkingPacket;
 import com.enormeboze.crushingwheelrecipeselector.network.CancelLinkingPacket;
 import com.enormeboze.crushingwheelrecipeselector.network.LinkResultPacket;
+import com.enormeboze.crushingwheelrecipeselector.network.AreaLinkResultPacket;
 import com.simibubi.create.content.kinetics.crusher.CrushingWheelBlock;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
@@ -13,6 +14,7 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
 import net.neoforged.neoforge.event.entity.player.PlayerEvent;
@@ -21,6 +23,8 @@ import net.neoforged.neoforge.event.server.ServerStoppingEvent;
 import net.neoforged.neoforge.network.PacketDistributor;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -32,20 +36,27 @@ import java.util.UUID;
  * - Right-click with wrench (NOT shift):
  *     - If wheel is not linked: Start/complete linking process
  *     - If wheel is linked: Open recipe selector GUI
+ * - Right-click with wrench in AREA MODE (/crushingselector wrench area):
+ *     - First wheel marks one corner, second wheel the opposite corner - every valid
+ *       pair of unlinked wheels in the box is linked at once
  * - Shift + Right-click with wrench: DEFAULT Create behavior (pick up block)
  */
 @EventBusSubscriber(modid = CrushingWheelRecipeSelector.MOD_ID)
 public class WrenchHandler {
 
-    // Pending link starts: Player UUID -> First wheel position
+    // Pending link starts: Player UUID -> First wheel position (first corner in area mode)
     private static final Map<UUID, BlockPos> pendingLinks = new HashMap<>();
 
+    // Players whose wrench is in area mode
+    private static final Set<UUID> areaModePlayers = new HashSet<>();
+
     /**
      * Clean up when server stops to prevent memory leaks
      */
     @SubscribeEvent
     public static void onServerStopping(ServerStoppingEvent event) {
         pendingLinks.clear();
+        areaModePlayers.clear();
         CrushingWheelRecipeSelector.LOGGER.debug("Cleared pending links on server stop");
     }
 
@@ -55,6 +66,7 @@ public class WrenchHandler {
     @SubscribeEvent
     public static void onPlayerLogout(PlayerEvent.PlayerLoggedOutEvent event) {
         UUID playerId = event.getEntity().getUUID();
+        areaModePlayers.remove(playerId);
         if (pendingLinks.remove(playerId) != null) {
             CrushingWheelRecipeSelector.LOGGER.debug("Cleared pending link for disconnected player {}",
                     event.getEntity().getName().getString());
@@ -115,7 +127,16 @@ public class WrenchHandler {
         // Check if player has a pending link
         BlockPos pendingPos = pendingLinks.get(playerId);
 
-        if (pendingPos != null) {
+        if (areaModePlayers.contains(playerId)) {
+            // Area mode - clicks mark corners, linked or not
+            if (pendingPos == null) {
+                startArea(player, clickedPos);
+            } else if (pendingPos.equals(clickedPos)) {
+                cancelLink(player);
+            } else {
+                completeArea(player, pendingPos, clickedPos, level, selections);
+            }
+        } else if (pendingPos != null) {
             // Player is completing a link
             if (pendingPos.equals(clickedPos)) {
                 // Clicked same wheel - cancel linking
@@ -142,11 +163,49 @@ public class WrenchHandler {
         // Include both valid targets (green) and invalid targets (red)
         if (player instanceof net.minecraft.server.level.ServerPlayer serverPlayer) {
             Set<BlockPos> validTargets = WheelLinkingHelper.findValidLinkTargets(level, pos);
-            Set<BlockPos> invalidTargets = WheelLinkingHelper.findInvalidLinkTargets(level, pos, validTargets);
+            Set<BlockPos> invalidTargets = WheelLinkingHelper.findInvalidLinkTargets(level, pos, validTargets,
+                    CrushingWheelSelections.get(level).getLinkSearchRadius());
             PacketDistributor.sendToPlayer(serverPlayer, new StartLinkingPacket(pos, validTargets, invalidTargets));
         }
     }
 
+    private static void startArea(Player player, BlockPos corner) {
+        pendingLinks.put(player.getUUID(), corner);
+        player.displayClientMessage(Component.literal("§eSelect the crushing wheel at the opposite corner..."), true);
+
+        // Highlight the first corner only
+        if (player instanceof net.minecraft.server.level.ServerPlayer serverPlayer) {
+            PacketDistributor.sendToPlayer(serverPlayer, new StartLinkingPacket(corner, Set.of(), Set.of()));
+        }
+    }
+
+    /**
+     * Link every valid pair of unlinked wheels between the two corners in one batch,
+     * and report the result in a single packet
+     */
+    private static void completeArea(Player player, BlockPos corner1, BlockPos corner2, Level level, CrushingWheelSelections selections) {
+        pendingLinks.remove(player.getUUID());
+
+        BoundingBox box = BoundingBox.fromCorners(corner1, corner2);
+        String reason = WheelLinkingHelper.getAreaLinkFailureReason(level, box);
+        int linked = 0;
+        if (reason != null) {
+            player.displayClientMessage(Component.literal("§c" + reason), true);
+        } else {
+            List<CrushingWheelSelections.WheelPair> pairs = WheelLinkingHelper.findUnlinkedPairs(level, box, selections);
+            linked = selections.linkPairs(level, pairs);
+            player.displayClientMessage(Component.literal(linked > 0
+                    ? "§aLinked " + linked + " crushing wheel pair(s)"
+                    : "§cNo unlinked wheel pairs in this area"), true);
+            CrushingWheelRecipeSelector.LOGGER.info("Player {} area-linked {} wheel pair(s) between {} and {}",
+                    player.getName().getString(), linked, corner1, corner2);
+        }
+
+        if (player instanceof net.minecraft.server.level.ServerPlayer serverPlayer) {
+            PacketDistributor.sendToPlayer(serverPlayer, new AreaLinkResultPacket(linked, corner1, corner2));
+        }
+    }
+
     private static void cancelLink(Player player) {
         pendingLinks.remove(player.getUUID());
         player.displayClientMessage(Component.literal("§cLinking cancelled"), true);
@@ -185,8 +244,8 @@ public class WrenchHandler {
     private static void completeLink(Player player, BlockPos firstPos, BlockPos secondPos, Level level, CrushingWheelSelections selections) {
         pendingLinks.remove(player.getUUID());
 
-        // Create a new group UUID for both wheels
-        UUID groupId = UUID.randomUUID();
+        // Allocate a new group ID for both wheels
+        int groupId = selections.allocateGroup();
 
         // Link both wheels to the same group
         selections.linkWheel(firstPos, groupId);
@@ -237,6 +296,22 @@ public class WrenchHandler {
         return itemName.contains("wrench");
     }
 
+    /**
+     * Switch a player's wrench between pair linking and area linking.
+     * Any pending link or corner is dropped.
+     */
+    public static void setAreaMode(Player player, boolean areaMode) {
+        if (pendingLinks.remove(player.getUUID()) != null
+                && player instanceof net.minecraft.server.level.ServerPlayer serverPlayer) {
+            PacketDistributor.sendToPlayer(serverPlayer, new CancelLinkingPacket());
+        }
+        if (areaMode) {
+            areaModePlayers.add(player.getUUID());
+        } else {
+            areaModePlayers.remove(player.getUUID());
+        }
+    }
+
     /**
      * Clear pending link for a player (e.g., on disconnect)
      */
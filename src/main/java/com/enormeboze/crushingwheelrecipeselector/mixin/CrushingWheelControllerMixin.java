@@ -1,161 +1,271 @@
 package com.enormeboze.crushingwheelrecipeselector.mixin;
 
+import com.enormeboze.crushingwheelrecipeselector.CrushingRecipeIndex;
 import com.enormeboze.crushingwheelrecipeselector.CrushingWheelRecipeSelector;
 import com.enormeboze.crushingwheelrecipeselector.CrushingWheelSelections;
+import com.enormeboze.crushingwheelrecipeselector.PreferenceTable;
+import com.enormeboze.crushingwheelrecipeselector.SelectionStats;
 import com.simibubi.create.content.kinetics.crusher.AbstractCrushingRecipe;
 import com.simibubi.create.content.kinetics.crusher.CrushingWheelControllerBlockEntity;
-import net.minecraft.core.BlockPos;
-import net.minecraft.core.Direction;
-import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.crafting.RecipeHolder;
-import net.minecraft.world.item.crafting.RecipeType;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 
 /**
  * Mixin to intercept Create's crushing wheel recipe selection.
  *
  * PERFORMANCE OPTIMIZATIONS:
- * 1. Early exit for unlinked controllers using O(1) HashSet lookup
- * 2. Reusable ThreadLocal list to avoid allocations
+ * 1. Early exit for uncontested input items and unlinked controllers using O(1) lookups
+ * 2. Preference table resolved directly from the controller position (no neighbour probe)
  * 3. No debug logging in hot path
- * 4. Cached direction array
+ * 4. Preferred recipes resolved through CrushingRecipeIndex (O(1) by ID)
+ * 5. Per-controller memo of the resolved recipe, keyed on input item, read view, preference table and recipe generation
+ * 6. HEAD short-circuit for memoized preferences - Create's own recipe search is skipped
+ * 7. Selections are only read through the immutable CrushingWheelSelections.ReadView, so this
+ *    is safe when block entities tick off the server thread
+ *
+ * Every exit path is counted in SelectionStats (see /crushingselector stats).
  */
 @Mixin(value = CrushingWheelControllerBlockEntity.class, remap = false)
 public abstract class CrushingWheelControllerMixin {
 
-    // Reusable list to avoid allocations on every recipe lookup
+    // Per-controller memo: last input item -> resolved preferred recipe (null = keep Create's choice).
+    // Only valid while memoView is the level's current read view, memoCell still holds
+    // memoTable and memoReloadGeneration matches CrushingRecipeIndex.getReloadGeneration().
+    @Unique
+    private Item crushingwheelrecipeselector$memoInput;
+
+    @Unique
+    private RecipeHolder<? extends AbstractCrushingRecipe> crushingwheelrecipeselector$memoRecipe;
+
+    // Why the memoized recipe is null (NO_PREFERENCE or PREFERRED_MISSING) - for stats only
+    @Unique
+    private SelectionStats.Exit crushingwheelrecipeselector$memoExit;
+
+    @Unique
+    private CrushingWheelSelections.ReadView crushingwheelrecipeselector$memoView;
+
+    @Unique
+    private CrushingWheelSelections.TableCell crushingwheelrecipeselector$memoCell;
+
     @Unique
-    private static final ThreadLocal<List<BlockPos>> crushingwheelrecipeselector$wheelPositions =
-            ThreadLocal.withInitial(() -> new ArrayList<>(4));
+    private Object crushingwheelrecipeselector$memoTable;
 
-    // Cache all directions for checking adjacent wheels
     @Unique
-    private static final Direction[] crushingwheelrecipeselector$allDirections = Direction.values();
+    private int crushingwheelrecipeselector$memoReloadGeneration = -1;
 
+    // Latency sample start stamp taken at HEAD, recorded once when the call exits (0 = not sampled)
+    @Unique
+    private long crushingwheelrecipeselector$sampleStart;
+
+    // The HEAD injector failed - the call continues into Create's search, so RETURN records it as ERROR
+    @Unique
+    private boolean crushingwheelrecipeselector$headError;
+
+    /**
+     * HEAD short-circuit: if this controller already resolved a preferred recipe for the
+     * current input item (and nothing changed since), return it without letting Create
+     * run its own recipe search first. Everything else falls through to the RETURN path.
+     */
     @Inject(
             method = "findRecipe",
-            at = @At("RETURN"),
+            at = @At("HEAD"),
             cancellable = true,
             remap = false,
             require = 0
     )
-    private void crushingwheelrecipeselector$onFindRecipe(CallbackInfoReturnable<Optional<RecipeHolder<? extends AbstractCrushingRecipe>>> cir) {
+    private void crushingwheelrecipeselector$onFindRecipeHead(CallbackInfoReturnable<Optional<RecipeHolder<? extends AbstractCrushingRecipe>>> cir) {
+        // One sample per call - a HEAD miss is recorded when the RETURN injector exits
+        long sampleStart = SelectionStats.sampleStart();
+        crushingwheelrecipeselector$sampleStart = sampleStart;
+        crushingwheelrecipeselector$headError = false;
         try {
-            CrushingWheelControllerBlockEntity blockEntity = (CrushingWheelControllerBlockEntity) (Object) this;
-
-            // Only process on server side
-            if (!(blockEntity.getLevel() instanceof ServerLevel serverLevel)) {
+            // Nothing memoized, or memo is from an older recipe generation - let Create search
+            RecipeHolder<? extends AbstractCrushingRecipe> memoRecipe = crushingwheelrecipeselector$memoRecipe;
+            if (memoRecipe == null || crushingwheelrecipeselector$memoReloadGeneration != CrushingRecipeIndex.getReloadGeneration()) {
                 return;
             }
 
-            BlockPos controllerPos = blockEntity.getBlockPos();
-            CrushingWheelSelections selections = CrushingWheelSelections.get(serverLevel);
-            if (selections == null) {
-                return;
-            }
+            CrushingWheelControllerBlockEntity blockEntity = (CrushingWheelControllerBlockEntity) (Object) this;
 
-            // ============================================================
-            // PERFORMANCE OPTIMIZATION: Early exit for unlinked controllers
-            // Single O(1) HashSet lookup - unlinked wheels skip everything
-            // ============================================================
-            if (!selections.isControllerActive(controllerPos)) {
+            // The memo only applies to the view and item it was resolved for
+            if (!(blockEntity.getLevel() instanceof ServerLevel serverLevel)
+                    || crushingwheelrecipeselector$memoView != CrushingWheelSelections.getReadView(serverLevel)
+                    || crushingwheelrecipeselector$memoCell.current() != crushingwheelrecipeselector$memoTable
+                    || blockEntity.inventory.getStackInSlot(0).getItem() != crushingwheelrecipeselector$memoInput) {
                 return;
             }
 
-            // Check if there's a recipe to potentially override
-            Optional<RecipeHolder<? extends AbstractCrushingRecipe>> currentRecipe = cir.getReturnValue();
-            if (currentRecipe.isEmpty()) {
-                return;
-            }
+            // The call ends here - RETURN won't run, so record the sample now
+            crushingwheelrecipeselector$sampleStart = 0L;
+            cir.setReturnValue(Optional.of(memoRecipe));
+            SelectionStats.record(SelectionStats.Exit.HEAD_SHORTCUT, sampleStart);
 
-            // Get the recipe and validate it has ingredients
-            AbstractCrushingRecipe recipe = currentRecipe.get().value();
-            var ingredients = recipe.getIngredients();
-            if (ingredients.isEmpty()) {
-                return;
-            }
+        } catch (Throwable t) {
+            // Not cancelled, so RETURN still runs - leave the sample for it to record
+            crushingwheelrecipeselector$headError = true;
+            CrushingWheelRecipeSelector.LOGGER.error("Error in recipe selection mixin", t);
+        }
+    }
 
-            ItemStack[] possibleInputs = ingredients.get(0).getItems();
-            if (possibleInputs.length == 0) {
-                return;
-            }
+    @Inject(
+            method = "findRecipe",
+            at = @At("RETURN"),
+            cancellable = true,
+            remap = false,
+            require = 0
+    )
+    private void crushingwheelrecipeselector$onFindRecipe(CallbackInfoReturnable<Optional<RecipeHolder<? extends AbstractCrushingRecipe>>> cir) {
+        // Started at HEAD, so the sample covers Create's own recipe search too
+        long sampleStart = crushingwheelrecipeselector$sampleStart;
+        boolean headError = crushingwheelrecipeselector$headError;
+        crushingwheelrecipeselector$sampleStart = 0L;
+        crushingwheelrecipeselector$headError = false;
+        try {
+            SelectionStats.Exit exit = crushingwheelrecipeselector$applyPreference(cir);
+            SelectionStats.record(headError ? SelectionStats.Exit.ERROR : exit, sampleStart);
+        } catch (Throwable t) {
+            // Only log actual errors - these should be rare
+            SelectionStats.record(SelectionStats.Exit.ERROR, sampleStart);
+            CrushingWheelRecipeSelector.LOGGER.error("Error in recipe selection mixin", t);
+        }
+    }
 
-            // Get the input item ID for preference lookup
-            String inputItemId = BuiltInRegistries.ITEM.getKey(possibleInputs[0].getItem()).toString();
+    /**
+     * RETURN path: swap Create's recipe for the preferred one if a preference applies.
+     * Returns how the call exited, for SelectionStats.
+     */
+    @Unique
+    private SelectionStats.Exit crushingwheelrecipeselector$applyPreference(CallbackInfoReturnable<Optional<RecipeHolder<? extends AbstractCrushingRecipe>>> cir) {
+        CrushingWheelControllerBlockEntity blockEntity = (CrushingWheelControllerBlockEntity) (Object) this;
 
-            // Reuse list to avoid garbage collection pressure
-            List<BlockPos> wheelPositions = crushingwheelrecipeselector$wheelPositions.get();
-            wheelPositions.clear();
+        // Only process on server side
+        if (!(blockEntity.getLevel() instanceof ServerLevel serverLevel)) {
+            return SelectionStats.Exit.NOT_SERVER_LEVEL;
+        }
 
-            // Check all 6 adjacent positions for linked wheels
-            // (The controller is between the wheels, so wheels are adjacent to it)
-            for (Direction direction : crushingwheelrecipeselector$allDirections) {
-                BlockPos adjacentPos = controllerPos.relative(direction);
-                if (selections.isWheelLinked(adjacentPos)) {
-                    wheelPositions.add(adjacentPos);
-                }
-            }
+        // ============================================================
+        // PERFORMANCE OPTIMIZATION: Skip uncontested input items
+        // Items with a single unique crushing output can never be
+        // overridden - skip them before touching CrushingWheelSelections
+        // ============================================================
+        Item inputItem = blockEntity.inventory.getStackInSlot(0).getItem();
+        if (!CrushingRecipeIndex.isContested(serverLevel, inputItem)) {
+            return SelectionStats.Exit.UNCONTESTED;
+        }
 
-            if (wheelPositions.isEmpty()) {
-                return;
-            }
+        long controllerPos = blockEntity.getBlockPos().asLong();
+        CrushingWheelSelections.ReadView view = CrushingWheelSelections.getReadView(serverLevel);
 
-            // Find a preference from any of the linked wheels
-            ResourceLocation preferredRecipeId = null;
-            for (int i = 0; i < wheelPositions.size(); i++) {
-                ResourceLocation pref = selections.getPreferredRecipe(wheelPositions.get(i), inputItemId);
-                if (pref != null) {
-                    preferredRecipeId = pref;
-                    break;
-                }
-            }
+        // ============================================================
+        // PERFORMANCE OPTIMIZATION: Early exit for unlinked controllers
+        // Single O(1) primitive-map lookup on the packed position - unlinked wheels skip everything
+        // ============================================================
+        CrushingWheelSelections.TableCell cell = view.getControllerCell(controllerPos);
+        if (cell == null) {
+            return SelectionStats.Exit.INACTIVE_CONTROLLER;
+        }
 
-            // No preference set for this input item
-            if (preferredRecipeId == null) {
-                return;
-            }
+        // Check if there's a recipe to potentially override
+        Optional<RecipeHolder<? extends AbstractCrushingRecipe>> currentRecipe = cir.getReturnValue();
+        if (currentRecipe.isEmpty()) {
+            return SelectionStats.Exit.EMPTY_RECIPE;
+        }
 
-            // Check if we're already using the preferred recipe
-            ResourceLocation currentRecipeId = currentRecipe.get().id();
-            if (currentRecipeId.equals(preferredRecipeId)) {
-                return;
-            }
+        // ============================================================
+        // PERFORMANCE OPTIMIZATION: Per-controller memo
+        // Steady-state crushing of one item type is a single identity
+        // comparison plus a view, table and generation check
+        // ============================================================
+        int reloadGeneration = CrushingRecipeIndex.getReloadGeneration();
+        Object table = cell.current();
+        if (crushingwheelrecipeselector$memoView != view
+                || crushingwheelrecipeselector$memoTable != table
+                || crushingwheelrecipeselector$memoReloadGeneration != reloadGeneration
+                || crushingwheelrecipeselector$memoInput != inputItem) {
+            crushingwheelrecipeselector$memoRecipe = crushingwheelrecipeselector$resolvePreferredRecipe(
+                    serverLevel, cell, currentRecipe.get());
+            crushingwheelrecipeselector$memoInput = inputItem;
+            crushingwheelrecipeselector$memoView = view;
+            crushingwheelrecipeselector$memoCell = cell;
+            crushingwheelrecipeselector$memoTable = table;
+            crushingwheelrecipeselector$memoReloadGeneration = reloadGeneration;
+        }
 
-            // Need to find and switch to the preferred recipe
-            final ResourceLocation finalPreferredRecipeId = preferredRecipeId;
-
-            @SuppressWarnings("unchecked")
-            RecipeType<AbstractCrushingRecipe> recipeType = (RecipeType<AbstractCrushingRecipe>)
-                    (RecipeType<?>) recipe.getType();
-
-            // Search for the preferred recipe by ID
-            Optional<RecipeHolder<AbstractCrushingRecipe>> preferredRecipe = serverLevel.getRecipeManager()
-                    .getAllRecipesFor(recipeType)
-                    .stream()
-                    .filter(holder -> holder.id().equals(finalPreferredRecipeId))
-                    .findFirst();
-
-            if (preferredRecipe.isPresent()) {
-                @SuppressWarnings("unchecked")
-                Optional<RecipeHolder<? extends AbstractCrushingRecipe>> result =
-                        (Optional<RecipeHolder<? extends AbstractCrushingRecipe>>) (Optional<?>) preferredRecipe;
-                cir.setReturnValue(result);
-            }
+        RecipeHolder<? extends AbstractCrushingRecipe> resolved = crushingwheelrecipeselector$memoRecipe;
+        if (resolved == null) {
+            return crushingwheelrecipeselector$memoExit;
+        }
 
-        } catch (Throwable t) {
-            // Only log actual errors - these should be rare
-            CrushingWheelRecipeSelector.LOGGER.error("Error in recipe selection mixin", t);
+        // Check if we're already using the preferred recipe
+        if (resolved == currentRecipe.get()) {
+            return SelectionStats.Exit.ALREADY_PREFERRED;
+        }
+
+        cir.setReturnValue(Optional.of(resolved));
+        return SelectionStats.Exit.OVERRIDE_APPLIED;
+    }
+
+    /**
+     * Resolve the preferred recipe for Create's current choice.
+     * Returns null if there is no preference (or it can't be found) so Create's recipe is kept;
+     * the reason is left in memoExit.
+     */
+    @Unique
+    private RecipeHolder<? extends AbstractCrushingRecipe> crushingwheelrecipeselector$resolvePreferredRecipe(
+            ServerLevel serverLevel, CrushingWheelSelections.TableCell cell,
+            RecipeHolder<? extends AbstractCrushingRecipe> currentRecipe) {
+
+        crushingwheelrecipeselector$memoExit = SelectionStats.Exit.NO_PREFERENCE;
+
+        // Get the recipe and validate it has ingredients
+        AbstractCrushingRecipe recipe = currentRecipe.value();
+        var ingredients = recipe.getIngredients();
+        if (ingredients.isEmpty()) {
+            return null;
+        }
+
+        ItemStack[] possibleInputs = ingredients.get(0).getItems();
+        if (possibleInputs.length == 0) {
+            return null;
         }
+
+        // Preferences are keyed on Item identity - no ID string is built here
+        Item preferenceKey = possibleInputs[0].getItem();
+
+        // The controller's cell was found with a single lookup in applyPreference
+        PreferenceTable preferences = cell.get();
+        ResourceLocation preferredRecipeId = preferences.get(preferenceKey);
+
+        // No preference set for this input item
+        if (preferredRecipeId == null) {
+            return null;
+        }
+
+        // Check if we're already using the preferred recipe
+        if (currentRecipe.id().equals(preferredRecipeId)) {
+            return currentRecipe;
+        }
+
+        // Look up the preferred recipe in the ID index - single hash probe
+        RecipeHolder<? extends AbstractCrushingRecipe> preferredRecipe =
+                CrushingRecipeIndex.getRecipe(serverLevel, preferredRecipeId);
+
+        // Only switch between recipes of the same type (crushing vs milling)
+        if (preferredRecipe != null && preferredRecipe.value().getType() == recipe.getType()) {
+            return preferredRecipe;
+        }
+
+        crushingwheelrecipeselector$memoExit = SelectionStats.Exit.PREFERRED_MISSING;
+        return null;
     }
-}
\ No newline at end of file
+}
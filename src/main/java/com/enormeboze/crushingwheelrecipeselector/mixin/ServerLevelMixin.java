@@ -0,0 +1,33 @@
+package com.enormeboze.crushingwheelrecipeselector.mixin;
+
+import com.enormeboze.crushingwheelrecipeselector.CrushingWheelSelections;
+import com.enormeboze.crushingwheelrecipeselector.SelectionsHolder;
+import net.minecraft.server.level.ServerLevel;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+/**
+ * Adds a cached CrushingWheelSelections handle to ServerLevel.
+ *
+ * PERFORMANCE OPTIMIZATION:
+ * CrushingWheelSelections.get() is called on every findRecipe, packet and block break.
+ * Going through getDataStorage().computeIfAbsent() each time allocates a Factory and
+ * does a string-keyed map lookup - this field turns it into a plain field read.
+ */
+@Mixin(ServerLevel.class)
+public abstract class ServerLevelMixin implements SelectionsHolder {
+
+    // Volatile so crusher ticks running off the server thread see the handle set on level load
+    @Unique
+    private volatile CrushingWheelSelections crushingwheelrecipeselector$selections;
+
+    @Override
+    public CrushingWheelSelections crushingwheelrecipeselector$getSelections() {
+        return crushingwheelrecipeselector$selections;
+    }
+
+    @Override
+    public void crushingwheelrecipeselector$setSelections(CrushingWheelSelections selections) {
+        crushingwheelrecipeselector$selections = selections;
+    }
+}
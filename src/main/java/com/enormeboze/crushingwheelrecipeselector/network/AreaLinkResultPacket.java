@@ -0,0 +1,60 @@
+package com.enormeboze.crushingwheelrecipeselector.network;
+
+import com.enormeboze.crushingwheelrecipeselector.CrushingWheelRecipeSelector;
+import com.enormeboze.crushingwheelrecipeselector.client.LinkingParticles;
+import com.enormeboze.crushingwheelrecipeselector.client.WheelHighlightRenderer;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+/**
+ * Sent from server to client when an area link (wrench area mode) completes.
+ * One summary packet for the whole area instead of a LinkResultPacket per pair.
+ */
+public record AreaLinkResultPacket(
+        int linked,     // Number of wheel pairs linked (0 = nothing linked)
+        BlockPos corner1,
+        BlockPos corner2
+) implements CustomPacketPayload {
+
+    public static final CustomPacketPayload.Type<AreaLinkResultPacket> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CrushingWheelRecipeSelector.MOD_ID, "area_link_result"));
+
+    public static final StreamCodec<FriendlyByteBuf, AreaLinkResultPacket> STREAM_CODEC =
+            StreamCodec.of(AreaLinkResultPacket::write, AreaLinkResultPacket::read);
+
+    public static void write(FriendlyByteBuf buf, AreaLinkResultPacket packet) {
+        buf.writeVarInt(packet.linked);
+        buf.writeBlockPos(packet.corner1);
+        buf.writeBlockPos(packet.corner2);
+    }
+
+    public static AreaLinkResultPacket read(FriendlyByteBuf buf) {
+        int linked = buf.readVarInt();
+        BlockPos corner1 = buf.readBlockPos();
+        BlockPos corner2 = buf.readBlockPos();
+        return new AreaLinkResultPacket(linked, corner1, corner2);
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+
+    public static void handle(AreaLinkResultPacket packet, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            // Clear highlighting of the first corner
+            WheelHighlightRenderer.clearSelection();
+
+            // Spawn particles across the area, or at the second corner if nothing was linked
+            if (packet.linked() > 0) {
+                LinkingParticles.spawnLinkSuccessParticles(packet.corner1(), packet.corner2());
+            } else {
+                LinkingParticles.spawnLinkErrorParticles(packet.corner2());
+            }
+        });
+    }
+}
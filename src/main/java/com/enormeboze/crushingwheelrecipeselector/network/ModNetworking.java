@@ -63,6 +63,13 @@ public class ModNetworking {
                 LinkResultPacket::handle
         );
 
+        // Server -> Client: Area link result (one summary per area)
+        registrar.playToClient(
+                AreaLinkResultPacket.TYPE,
+                AreaLinkResultPacket.STREAM_CODEC,
+                AreaLinkResultPacket::handle
+        );
+
         CrushingWheelRecipeSelector.LOGGER.info("Network packets registered");
     }
 }
\ No newline at end of file